@@ -0,0 +1,149 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.PluginDescription;
+import org.mockito.Mockito;
+
+// 基准测试的公共夹具：不需要代理的插件实例、临时目录和模拟玩家
+final class BenchmarkSupport {
+
+    // 所有基准共用的配置：不安装控制台镜像、不压缩、不限流，避免测到无关的后台工作
+    private static final String[] BASE_CONFIG = {
+            "enable-console-mirror: false",
+            "compress-logs: false",
+            "webapi: false",
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    static File tempDirectory() throws IOException {
+        return Files.createTempDirectory("bungeelog-bench").toFile();
+    }
+
+    // 在 dir 下创建插件数据目录并写入配置，后面的配置行覆盖前面的
+    static BungeeLog plugin(File dir, String... config) throws IOException {
+        File dataFolder = new File(dir, "BungeeLog");
+        dataFolder.mkdirs();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dataFolder, "config.yml")), StandardCharsets.UTF_8))) {
+            for (String line : merge(config)) {
+                writer.println(line);
+            }
+        }
+
+        Logger proxyLogger = Logger.getLogger("BungeeCord");
+        proxyLogger.setLevel(Level.WARNING);
+        ProxyServer proxy = Mockito.mock(ProxyServer.class);
+        Mockito.when(proxy.getLogger()).thenReturn(proxyLogger);
+
+        PluginDescription description = new PluginDescription();
+        description.setName("BungeeLog");
+        description.setFile(new File(dir, "BungeeLog.jar"));
+
+        BungeeLog plugin = new BungeeLog(proxy, description);
+        plugin.reloadLogging();
+        return plugin;
+    }
+
+    private static String[] merge(String[] config) {
+        String[] lines = new String[BASE_CONFIG.length + config.length];
+        int count = 0;
+        for (String line : BASE_CONFIG) {
+            if (!overridden(line, config)) {
+                lines[count++] = line;
+            }
+        }
+        for (String line : config) {
+            lines[count++] = line;
+        }
+        String[] result = new String[count];
+        System.arraycopy(lines, 0, result, 0, count);
+        return result;
+    }
+
+    private static boolean overridden(String line, String[] config) {
+        String key = line.substring(0, line.indexOf(':') + 1);
+        for (String other : config) {
+            if (other.startsWith(key)) return true;
+        }
+        return false;
+    }
+
+    static void shutdown(BungeeLog plugin, File dir) {
+        if (plugin != null) {
+            plugin.onDisable();
+        }
+        delete(dir);
+    }
+
+    static void delete(File file) {
+        if (file == null) return;
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // 只实现日志路径会用到的方法，其余方法返回默认值；用动态代理而不是 Mockito，避免模拟框架的开销混进测量结果
+    static ProxiedPlayer player(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 50000);
+        return (ProxiedPlayer) Proxy.newProxyInstance(ProxiedPlayer.class.getClassLoader(),
+                new Class<?>[]{ProxiedPlayer.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getName":
+                        case "getDisplayName":
+                        case "toString":
+                            return name;
+                        case "getUniqueId":
+                            return uuid;
+                        case "getAddress":
+                        case "getSocketAddress":
+                            return address;
+                        case "hashCode":
+                            return uuid.hashCode();
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        if (type == double.class) return 0D;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+}
@@ -0,0 +1,137 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.handshake.ServerHandshake;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 一条事件广播到 1/10/100 个本机回环 WebSocket 客户端，直到所有客户端都收到为止的耗时
+// 基准线程扮演写入线程调用 publish，包含序列化、订阅表分发和实际的网络发送
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BroadcastBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int clients;
+
+    @Param({"true", "false"})
+    public boolean compression;
+
+    private File dir;
+    private BungeeLog plugin;
+    private BungeeWebSocketServer server;
+    private final List<Client> connected = new ArrayList<>();
+    private final AtomicLong received = new AtomicLong();
+    private long expected;
+
+    private LogEvent event;
+    private final StringBuilder json = new StringBuilder(256);
+    private final StringBuilder scratch = new StringBuilder(256);
+
+    @Setup
+    public void setup() throws Exception {
+        dir = BenchmarkSupport.tempDirectory();
+        plugin = BenchmarkSupport.plugin(dir, "wa-compression: " + compression, "wa-compression-threshold: 0",
+                "wa-history-size: 0");
+        int port = BenchmarkSupport.freePort();
+        server = new BungeeWebSocketServer(plugin, "127.0.0.1", port, plugin.getSettings());
+        server.start();
+
+        URI uri = new URI("ws://127.0.0.1:" + port);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(uri);
+            // 服务器线程启动需要一点时间，首个连接失败时重试
+            for (int attempt = 0; !client.connectBlocking() && attempt < 50; attempt++) {
+                Thread.sleep(100);
+                client = new Client(uri);
+            }
+            client.send(plugin.getSettings().getWebapiPassword());
+            if (!client.authenticated.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("WebSocket 客户端认证超时");
+            }
+            connected.add(client);
+        }
+
+        event = new LogEvent().set(EventType.CHAT, "INFO", true, BenchmarkSupport.player("Steve"),
+                null, null, null, "hello from the benchmark");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Client client : connected) {
+            client.closeBlocking();
+        }
+        server.stopServer();
+        BenchmarkSupport.shutdown(plugin, dir);
+    }
+
+    @Benchmark
+    public long fanOut() {
+        expected += clients;
+        server.publish(event, json, scratch);
+        long count;
+        while ((count = received.get()) < expected) {
+            Thread.yield();
+        }
+        return count;
+    }
+
+    private final class Client extends WebSocketClient {
+
+        final CountDownLatch authenticated = new CountDownLatch(1);
+
+        Client(URI uri) {
+            super(uri);
+        }
+
+        @Override
+        public void onOpen(ServerHandshake handshake) {
+        }
+
+        @Override
+        public void onMessage(String message) {
+            if (authenticated.getCount() > 0) {
+                if (message.contains("\"type\":\"auth\"")) {
+                    authenticated.countDown();
+                }
+            } else if (message.contains("\"type\":\"plugin\"")) {
+                received.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onMessage(ByteBuffer bytes) {
+        }
+
+        @Override
+        public void onClose(int code, String reason, boolean remote) {
+        }
+
+        @Override
+        public void onError(Exception ex) {
+        }
+    }
+}
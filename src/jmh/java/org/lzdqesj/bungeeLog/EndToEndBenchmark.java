@@ -0,0 +1,61 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 从事件线程调用 emit 到写入线程把该行写进日志文件的延迟分布（SampleTime 给出各分位数）
+// 写入线程处理完一批后才推进消费序号，队列清空即表示事件已经写入
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EndToEndBenchmark {
+
+    @Param({"file", "mmap"})
+    public String sink;
+
+    private File dir;
+    private BungeeLog plugin;
+    private AsyncLogWriter writer;
+    private ProxiedPlayer player;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkSupport.tempDirectory();
+        plugin = BenchmarkSupport.plugin(dir, "log-sink: \"" + sink + "\"");
+        writer = plugin.getLoggingSession().getWriter();
+        player = BenchmarkSupport.player("Steve");
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.shutdown(plugin, dir);
+    }
+
+    @Benchmark
+    public int eventToDisk() {
+        plugin.emit(EventType.CHAT, "INFO", true, player, null, null, null, "hello from the benchmark");
+        int queued;
+        while ((queued = writer.getQueueSize()) > 0) {
+            Thread.yield();
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,70 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 写入线程追加一行到日志文件（含索引）的开销，flush 为 true 时每行都刷新，对应最初每行 flush 的写法
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileAppendBenchmark {
+
+    @Param({"file", "mmap"})
+    public String sink;
+
+    @Param({"false", "true"})
+    public boolean flush;
+
+    @Param({"true", "false"})
+    public boolean index;
+
+    private File dir;
+    private BungeeLog plugin;
+    private RollingLogFile file;
+    private LogEvent event;
+    private byte[] line;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = BenchmarkSupport.tempDirectory();
+        plugin = BenchmarkSupport.plugin(dir, "log-sink: \"" + sink + "\"", "log-index: " + index);
+        File logsDir = new File(dir, "bench-logs");
+        file = new RollingLogFile(plugin, logsDir, plugin.getSettings(), null);
+        event = new LogEvent().set(EventType.CHAT, "INFO", true, BenchmarkSupport.player("Steve"),
+                null, null, null, "hello from the benchmark");
+        line = ("[12:00:00] [INFO] [聊天] Steve: hello from the benchmark" + System.lineSeparator())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        file.close();
+        BenchmarkSupport.shutdown(plugin, dir);
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        file.write(line, 0, line.length, event);
+        if (flush) {
+            file.flush();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.lzdqesj.bungeeLog;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 单行日志的格式化和 JSON 转义：预编译模板对比最初每行 SimpleDateFormat 加三次 replace 的写法
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FormatBenchmark {
+
+    private static final String LOG_FORMAT = "[%time%] [%level%] %message%";
+
+    // plain 不需要转义；escaped 含引号、换行、反斜杠和中文
+    @Param({"plain", "escaped"})
+    public String message;
+
+    private String text;
+    private LogTemplate template;
+    private LogClock clock;
+    private LogEvent pluginEvent;
+    private LogEvent playerEvent;
+    private final StringBuilder line = new StringBuilder(256);
+    private final StringBuilder json = new StringBuilder(256);
+    private final StringBuilder scratch = new StringBuilder(256);
+
+    @Setup
+    public void setup() {
+        text = "plain".equals(message)
+                ? "Steve issued server command: /server lobby-1"
+                : "Steve said \"hi\"\n\tpath C:\\Users\\steve 中文消息";
+        template = LogTemplate.compile(LOG_FORMAT);
+        clock = new LogClock("HH:mm:ss");
+        pluginEvent = new LogEvent().set(EventType.PLUGIN, "INFO", true, null, null, null, null, text);
+        playerEvent = new LogEvent().set(EventType.PLAYER_GOTO_SERVER, "INFO", true,
+                BenchmarkSupport.player("Steve"), null, "lobby-1", "hub", null);
+
+        // 两种写法必须渲染出同一行，否则对比没有意义
+        long now = System.currentTimeMillis();
+        String legacy = LOG_FORMAT
+                .replace("%time%", new SimpleDateFormat("HH:mm:ss").format(new Date(now)))
+                .replace("%level%", "INFO")
+                .replace("%message%", text);
+        line.setLength(0);
+        template.render(line, clock.format(now), pluginEvent);
+        if (!legacy.contentEquals(line)) {
+            throw new IllegalStateException("模板输出与旧写法不一致: " + line + " / " + legacy);
+        }
+    }
+
+    @Benchmark
+    public String legacyFormat() {
+        String time = new SimpleDateFormat("HH:mm:ss").format(new Date());
+        return LOG_FORMAT
+                .replace("%time%", time)
+                .replace("%level%", "INFO")
+                .replace("%message%", text);
+    }
+
+    @Benchmark
+    public StringBuilder templateFormat() {
+        line.setLength(0);
+        template.render(line, clock.format(System.currentTimeMillis()), pluginEvent);
+        return line;
+    }
+
+    @Benchmark
+    public String legacyEscape() {
+        return text.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t");
+    }
+
+    @Benchmark
+    public StringBuilder escape() {
+        line.setLength(0);
+        JsonWriter.escape(line, text);
+        return line;
+    }
+
+    @Benchmark
+    public StringBuilder pluginJson() {
+        json.setLength(0);
+        pluginEvent.writePluginJson(json, scratch);
+        return json;
+    }
+
+    @Benchmark
+    public StringBuilder playerJson() {
+        json.setLength(0);
+        playerEvent.writePlayerJson(json);
+        return json;
+    }
+}
@@ -0,0 +1,102 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// 环形缓冲区在 1/4/16/64 个生产者下的抢占竞争，消费者是一个只推进序号的后台线程
+// 缓冲区满时生产者让出 CPU 后重试，因此结果同时反映 CAS 竞争和消费者跟不上时的背压
+// dropOldest 为 true 时按 drop-oldest 策略挤掉最旧的一条，消费者改为逐条复制后用 CAS 释放槽位
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RingBufferBenchmark {
+
+    @Param({"8192"})
+    public int capacity;
+
+    @Param({"false", "true"})
+    public boolean dropOldest;
+
+    private LogRingBuffer ring;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @Setup
+    public void start() {
+        ring = new LogRingBuffer(capacity, dropOldest);
+        running = true;
+        consumer = new Thread(() -> {
+            LogRingBuffer.Handler handler = event -> {
+            };
+            while (running) {
+                try {
+                    if (ring.drain(handler, 256) == 0) {
+                        Thread.yield();
+                    }
+                } catch (Exception ignored) {
+                    // 空处理器不会抛出
+                }
+            }
+        }, "BungeeLog-Bench-Consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown
+    public void stop() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    private long offer() {
+        long sequence;
+        while ((sequence = ring.tryClaim()) < 0) {
+            if (!dropOldest || !ring.dropOldest()) {
+                Thread.yield();
+            }
+        }
+        ring.get(sequence).set(EventType.PLUGIN, "INFO", true, null, null, null, null, "bench");
+        ring.publish(sequence);
+        return sequence;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long producers01() {
+        return offer();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long producers04() {
+        return offer();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long producers16() {
+        return offer();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long producers64() {
+        return offer();
+    }
+}
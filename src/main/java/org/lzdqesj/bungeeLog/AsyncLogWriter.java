@@ -0,0 +1,348 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+// 异步批量日志写入器：事件线程只负责把事件填入环形缓冲区，由独立写入线程格式化、批量落盘并转发给 WebSocket
+public class AsyncLogWriter {
+
+    // 队列已满时的处理策略
+    public enum OverflowPolicy {
+        BLOCK,          // 阻塞调用线程直到有空位
+        DROP_OLDEST,    // 丢弃最旧的一条
+        DROP;           // 丢弃当前这条并计数
+
+        public static OverflowPolicy parse(String value, Logger logger) {
+            if (value != null) {
+                String name = value.trim().replace('-', '_');
+                for (OverflowPolicy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(name)) {
+                        return policy;
+                    }
+                }
+            }
+            logger.warning("无效的队列溢出策略: " + value + "，使用 drop-oldest");
+            return DROP_OLDEST;
+        }
+    }
+
+    private final BungeeLog plugin;
+    private final LogRingBuffer ring;
+    private final LogTemplate template;
+    private final LogClock clock;
+    // 写入线程独占的行缓冲区
+    private final StringBuilder line = new StringBuilder(256);
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final RollingLogFile file;
+    private final CharsetEncoder encoder;
+    // 写入线程独占的编码缓冲区
+    private ByteBuffer encoded = ByteBuffer.allocate(1024);
+    // 同一事件的其他消费者（WebSocket），在写入线程上依次调用
+    private final LogRingBuffer.Handler forward;
+    private final LogRingBuffer.Handler handler = this::onEvent;
+    private final Thread thread;
+    private final AtomicLong dropped = new AtomicLong();
+    private final LogMetrics metrics;
+    private volatile boolean running = true;
+    // 写入线程空闲休眠时为 true，生产者发布后据此决定是否唤醒
+    private volatile boolean sleeping;
+    private boolean dirty;
+    // 持久化模式下本写入器在预写日志中的进度，未启用时为 null
+    private final LogJournal journal;
+    private final LogJournal.Cursor cursor;
+    // 写入线程已写入的最大预写日志序号
+    private long lastJournaled;
+
+    public AsyncLogWriter(BungeeLog plugin, RollingLogFile file, Charset charset, LogTemplate template, LogClock clock,
+                          int queueSize, int batchSize, long flushIntervalMillis,
+                          OverflowPolicy overflowPolicy, LogRingBuffer.Handler forward, LogJournal journal) {
+        this.plugin = plugin;
+        this.metrics = plugin.getMetrics();
+        this.template = template;
+        this.clock = clock;
+        this.ring = new LogRingBuffer(Math.max(2, queueSize), overflowPolicy == OverflowPolicy.DROP_OLDEST);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.forward = forward;
+        this.file = file;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.journal = journal;
+        this.cursor = journal != null ? journal.register() : null;
+
+        this.thread = new Thread(this::run, "BungeeLog-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // 抢占一个槽位，返回 -1 表示该事件被丢弃；抢占成功后必须调用 publish
+    public long claim() {
+        if (!running) {
+            dropped.incrementAndGet();
+            return -1;
+        }
+
+        long sequence = ring.tryClaim();
+        if (sequence >= 0) {
+            return sequence;
+        }
+
+        // 写入线程自身产生的日志（例如写入失败的报错）不能阻塞等待自己
+        if (overflowPolicy == OverflowPolicy.BLOCK && Thread.currentThread() != thread) {
+            while (running) {
+                LockSupport.parkNanos(50_000L);
+                sequence = ring.tryClaim();
+                if (sequence >= 0) {
+                    return sequence;
+                }
+            }
+        }
+
+        // 挤掉最旧的一条后重新抢占；最旧的槽位一直无法释放（正在填充或是持久化事件）时丢弃当前这条
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            for (int attempt = 0; attempt < 16 && running; attempt++) {
+                if (ring.dropOldest()) {
+                    dropped.incrementAndGet();
+                } else {
+                    Thread.yield();
+                }
+                sequence = ring.tryClaim();
+                if (sequence >= 0) {
+                    return sequence;
+                }
+            }
+        }
+
+        dropped.incrementAndGet();
+        return -1;
+    }
+
+    // 非阻塞地抢占槽位，队列已满时返回 -1 且不计入丢弃，由调用方决定重试还是放弃
+    public long tryClaim() {
+        return running ? ring.tryClaim() : -1;
+    }
+
+    // tryClaim 失败后调用：BLOCK 策略下稍等片刻、DROP_OLDEST 策略下挤掉最旧的一条后返回 true 让调用方重试，
+    // 否则计入丢弃并返回 false
+    public boolean awaitSpace() {
+        if (running && overflowPolicy == OverflowPolicy.BLOCK && Thread.currentThread() != thread) {
+            LockSupport.parkNanos(50_000L);
+            return true;
+        }
+        if (running && overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            if (ring.dropOldest()) {
+                dropped.incrementAndGet();
+                return true;
+            }
+            // 其他线程刚释放了槽位时直接重试；最旧的是持久化事件时丢弃当前这条
+            if (ring.size() < ring.capacity()) {
+                return true;
+            }
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    public LogEvent slot(long sequence) {
+        return ring.get(sequence);
+    }
+
+    public void publish(long sequence) {
+        ring.publish(sequence);
+        if (sleeping) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    // 写入线程主循环
+    private void run() {
+        // 写入线程上产生的日志记录不能再进入它自己消费的环形缓冲区
+        SelfDiagnostics.mute();
+        long lastFlush = System.currentTimeMillis();
+        long lastRollCheck = lastFlush;
+        int idle = 0;
+
+        while (true) {
+            int count;
+            try {
+                count = ring.drain(handler, batchSize);
+            } catch (Exception | InternalError e) {
+                // 内存映射分段的 I/O 错误（如磁盘已满）以 InternalError 抛出，不能让它结束写入线程
+                plugin.getDiagnostics().severe("写入日志失败: " + e.getMessage());
+                count = 1;
+            }
+
+            if (!running && count == 0) {
+                break;
+            }
+
+            try {
+                long now = System.currentTimeMillis();
+                if (dirty && now - lastFlush >= flushIntervalMillis) {
+                    long start = System.nanoTime();
+                    file.flush();
+                    metrics.recordFlush(System.nanoTime() - start);
+                    if (cursor != null) {
+                        cursor.flushed(lastJournaled);
+                    }
+                    lastFlush = now;
+                    dirty = false;
+                }
+
+                // 按日期滚动的检查跟随写入线程，不再需要单独的定时任务
+                if (now - lastRollCheck >= 1000L) {
+                    file.rollIfNeeded();
+                    lastRollCheck = now;
+                }
+            } catch (IOException e) {
+                plugin.getDiagnostics().severe("写入日志失败: " + e.getMessage());
+            }
+
+            if (count > 0) {
+                idle = 0;
+            } else {
+                idle = backoff(idle);
+            }
+        }
+    }
+
+    // 空闲时先短暂让出 CPU，之后休眠到下一次刷盘检查，期间由发布事件的生产者唤醒
+    private int backoff(int idle) {
+        if (idle < 64) {
+            Thread.yield();
+            return idle + 1;
+        }
+        sleeping = true;
+        // 先置标志再检查：生产者抢占序号后才读取标志，两边至少有一方看到对方
+        if (running && ring.size() == 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(flushIntervalMillis, 1000L)));
+        } else {
+            // 已抢占但还没发布的槽位，让出 CPU 给正在填充的生产者
+            Thread.yield();
+        }
+        sleeping = false;
+        return idle;
+    }
+
+    private void onEvent(LogEvent event) throws Exception {
+        // 持久化事件在所在批次落盘之前不写入日志文件，也不转发；同一批次的后续事件不再等待
+        if (journal != null && event.getJournalSequence() > 0) {
+            journal.awaitDurable(event.getJournalSequence());
+        }
+        if (event.isLogged()) {
+            line.setLength(0);
+            template.render(line, clock.format(event.getTimestamp()), event);
+            line.append(System.lineSeparator());
+            encode(line);
+            file.write(encoded.array(), 0, encoded.limit(), event);
+            metrics.recordWrite(encoded.limit(), System.nanoTime() - event.getNanoTime());
+            dirty = true;
+            if (event.getJournalSequence() > lastJournaled) {
+                lastJournaled = event.getJournalSequence();
+            }
+        }
+        metrics.recordEvent(event.getType());
+
+        // 恢复的是上次运行的旧事件，不再推送给 WebSocket 订阅者
+        if (forward != null && !event.isRecovered()) {
+            forward.onEvent(event);
+        }
+    }
+
+    // 把一行文本编码进可复用的字节缓冲区，空间不足时扩容
+    private void encode(CharSequence text) {
+        CharBuffer in = CharBuffer.wrap(text);
+        encoder.reset();
+        encoded.clear();
+        while (true) {
+            CoderResult result = encoder.encode(in, encoded, true);
+            if (result.isOverflow()) {
+                grow();
+                continue;
+            }
+            result = encoder.flush(encoded);
+            if (result.isOverflow()) {
+                grow();
+                continue;
+            }
+            break;
+        }
+        encoded.flip();
+    }
+
+    private void grow() {
+        ByteBuffer larger = ByteBuffer.allocate(encoded.capacity() * 2);
+        encoded.flip();
+        larger.put(encoded);
+        encoded = larger;
+    }
+
+    // 停止写入线程，剩余已发布的事件由写入线程处理完后再关闭文件
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            plugin.getDiagnostics().warning("日志写入线程未能及时退出，剩余 " + ring.size() + " 条日志未写入");
+            return;
+        }
+
+        try {
+            file.close();
+        } catch (IOException e) {
+            plugin.getDiagnostics().severe("关闭日志文件失败: " + e.getMessage());
+            return;
+        }
+        if (cursor != null) {
+            cursor.flushed(lastJournaled);
+            journal.unregister(cursor);
+        }
+    }
+
+    public LogJournal getJournal() {
+        return journal;
+    }
+
+    LogJournal.Cursor getJournalCursor() {
+        return cursor;
+    }
+
+    public File getCurrentFile() {
+        return file.getCurrentFile();
+    }
+
+    // 重载时由新会话调用，旧会话关闭后压缩它的分段
+    public void supersede() {
+        file.supersede();
+    }
+
+    public int getQueueSize() {
+        return ring.size();
+    }
+
+    public int getQueueCapacity() {
+        return ring.capacity();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
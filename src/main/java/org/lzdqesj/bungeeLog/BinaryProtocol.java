@@ -0,0 +1,141 @@
+package org.lzdqesj.bungeeLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// 面向程序客户端的二进制事件协议，握手时通过子协议 bungeelog.binary.v1 选择
+// 选择 bungeelog.json.v1 或不带子协议的客户端继续使用 JSON 文本帧；认证、回复和控制消息始终是 JSON 文本帧
+//
+// 每个二进制帧包含一条或多条记录，所有整数均为大端序：
+//
+//   记录   := u8 操作码, 内容
+//   0x01 DEFINE  u16 编号, str 字符串              为之后的引用定义字典项，编号从 1 开始
+//   0x02 EVENT   i64 序号, i64 时间戳（毫秒）,
+//                u8 事件类型, u8 标志,
+//                ref 级别, ref 玩家名, [i64 UUID 高位, i64 UUID 低位],
+//                ref 服务器, ref 另一个服务器, str 地址, str 文本
+//   0x03 RESET   清空字典，之后的编号重新从 1 开始
+//
+//   str    := i32 UTF-8 字节长度（-1 表示 null）, 字节
+//   ref    := u16 字典编号，0 表示 null
+//   标志   := bit0 玩家事件消息（否则为日志行消息）, bit1 带 UUID
+//   事件类型 := 0 plugin, 1 playerjoin, 2 playerquit, 3 serverconnect, 4 playergotoserver,
+//              5 playerleaveserver, 6 playerkick, 7 playercommand, 8 playerchat, 9 ping
+//              （新类型只会追加在末尾）
+//
+// 字典按连接维护，玩家名、服务器名和级别只在第一次出现时传输；条目达到上限后发送 RESET 重新开始
+public final class BinaryProtocol {
+
+    public static final String SUBPROTOCOL = "bungeelog.binary.v1";
+    public static final String JSON_SUBPROTOCOL = "bungeelog.json.v1";
+
+    static final int OP_DEFINE = 0x01;
+    static final int OP_EVENT = 0x02;
+    static final int OP_RESET = 0x03;
+
+    static final int FLAG_PLAYER_MESSAGE = 0x01;
+    static final int FLAG_UUID = 0x02;
+
+    // 字典上限，保证编号放得进 u16，也限制每个连接的内存
+    static final int MAX_DICTIONARY = 4096;
+
+    private BinaryProtocol() {
+    }
+
+    // 单个连接的编码器，只在该连接的发送锁内使用
+    public static final class Encoder {
+
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private ByteBuffer out = ByteBuffer.allocate(1024);
+
+        public void begin() {
+            out.clear();
+        }
+
+        public int size() {
+            return out.position();
+        }
+
+        // 当前帧的内容，下次 begin 之前有效
+        public ByteBuffer finish() {
+            ByteBuffer frame = ByteBuffer.allocate(out.position());
+            out.flip();
+            frame.put(out);
+            frame.flip();
+            return frame;
+        }
+
+        public void write(EventRecord record) {
+            // 一条事件最多新增 4 个字典项，放不下时先整体重置，避免同一条事件引用到重置前的编号
+            if (dictionary.size() > MAX_DICTIONARY - 4) {
+                dictionary.clear();
+                ensure(1);
+                out.put((byte) OP_RESET);
+            }
+            int level = ref(record.getLevel());
+            int player = ref(record.getPlayerName());
+            int server = ref(record.getServer());
+            int otherServer = ref(record.getOtherServer());
+            UUID uuid = record.getPlayerUuid();
+
+            ensure(32);
+            out.put((byte) OP_EVENT);
+            out.putLong(record.getSequence());
+            out.putLong(record.getTimestamp());
+            out.put((byte) record.getType().ordinal());
+            out.put((byte) ((record.isPlayerMessage() ? FLAG_PLAYER_MESSAGE : 0) | (uuid != null ? FLAG_UUID : 0)));
+            out.putShort((short) level);
+            out.putShort((short) player);
+            if (uuid != null) {
+                ensure(16);
+                out.putLong(uuid.getMostSignificantBits());
+                out.putLong(uuid.getLeastSignificantBits());
+            }
+            ensure(4);
+            out.putShort((short) server);
+            out.putShort((short) otherServer);
+            putString(record.getAddress());
+            putString(record.getText());
+        }
+
+        // 查字典，新字符串先写一条 DEFINE
+        private int ref(String value) {
+            if (value == null) return 0;
+
+            Integer id = dictionary.get(value);
+            if (id != null) {
+                return id;
+            }
+            id = dictionary.size() + 1;
+            dictionary.put(value, id);
+            ensure(3);
+            out.put((byte) OP_DEFINE);
+            out.putShort((short) (int) id);
+            putString(value);
+            return id;
+        }
+
+        private void putString(String value) {
+            if (value == null) {
+                ensure(4);
+                out.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+
+        private void ensure(int bytes) {
+            if (out.remaining() >= bytes) return;
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+            out.flip();
+            larger.put(out);
+            out = larger;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.lzdqesj.bungeeLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+// 最近广播消息的内存环：按条数和字节数双重限制，客户端重连后可以按序号补发错过的消息
+// 保存的是已编码的共享载荷和事件副本，补发时不再重新序列化；调用方负责加锁
+public class BroadcastHistory {
+
+    private static final class Entry {
+        final long sequence;
+        final ByteBuffer payload;
+        // null 表示控制消息
+        final EventRecord record;
+
+        Entry(long sequence, ByteBuffer payload, EventRecord record) {
+            this.sequence = sequence;
+            this.payload = payload;
+            this.record = record;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    private long bytes;
+
+    public BroadcastHistory(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && maxBytes > 0;
+    }
+
+    // record 为 null 表示控制消息
+    public void add(long sequence, ByteBuffer payload, EventRecord record) {
+        if (!isEnabled()) return;
+
+        entries.addLast(new Entry(sequence, payload, record));
+        bytes += payload.remaining();
+        while (!entries.isEmpty() && (entries.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= entries.pollFirst().payload.remaining();
+        }
+    }
+
+    // 序号在 (after, before) 之间且符合订阅条件的消息，按序号从小到大
+    // 二进制客户端取事件副本，由其编码器按连接字典编码；控制消息始终是 JSON 载荷
+    public List<Object> between(long after, long before, Subscription filter, boolean records) {
+        List<Object> result = new ArrayList<>();
+        Iterator<Entry> it = entries.descendingIterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.sequence <= after) break;
+            if (entry.sequence < before && (entry.record == null || entry.record.matches(filter))) {
+                result.add(records && entry.record != null ? entry.record : entry.payload);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    // 内存中最旧一条消息的序号，为空时返回 -1
+    public long getOldestSequence() {
+        Entry first = entries.peekFirst();
+        return first != null ? first.sequence : -1;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -1,45 +1,65 @@
 package org.lzdqesj.bungeeLog;
 
+import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.api.plugin.PluginDescription;
 import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.config.Configuration;
 import net.md_5.bungee.config.ConfigurationProvider;
 import net.md_5.bungee.config.YamlConfiguration;
-import net.md_5.bungee.api.connection.ProxiedPlayer;
-
 import java.io.*;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.concurrent.TimeUnit;
-import java.util.logging.*;
 
 public class BungeeLog extends Plugin implements Listener {
 
     private static BungeeLog instance;
-    private File logFile;
-    private PrintWriter logWriter;
-    private String logFormat;
-    private boolean enableConsoleMirror;
-    private boolean dailyRolling;
-    private String currentDate;
+    // 当前日志会话，重载或切换时整体替换
+    private volatile LoggingSession loggingSession;
+    private final LogClock logClock = new LogClock("HH:mm:ss");
+    private final ThreadLocal<StringBuilder> jsonBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private final ThreadLocal<StringBuilder> textBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
     private Configuration config;
+    // 当前生效的配置快照，重载时整体替换
+    private volatile LogSettings settings;
+    // 内部诊断通道，不经过控制台镜像
+    private SelfDiagnostics diagnostics;
+    // 运行指标，跨重载累计
+    private final LogMetrics metrics = new LogMetrics();
+    private MetricsHttpServer metricsServer;
+    // 持久化模式的预写日志，跨重载保留，未启用时为 null
+    private volatile LogJournal journal;
 
     // WebAPI 相关
-    private BungeeWebSocketServer webSocketServer;
-    private boolean webapiEnabled;
-    private String webapiAddress;
-    private String webapiPassword;
+    private volatile BungeeWebSocketServer webSocketServer;
+    private volatile boolean webapiEnabled;
+
+    public BungeeLog() {
+    }
+
+    // 不经过插件加载器创建实例，供基准测试在没有代理的环境中使用，之后调用 reloadLogging 初始化
+    BungeeLog(ProxyServer proxy, PluginDescription description) {
+        super(proxy, description);
+        diagnostics = new SelfDiagnostics(this);
+    }
 
     @Override
     public void onEnable() {
         instance = this;
+        diagnostics = new SelfDiagnostics(this);
 
         // 加载配置
         loadConfig();
 
+        // 打开预写日志，恢复上次未写入日志文件的事件
+        updateJournal();
+
         // 初始化日志系统
         setupLogging();
 
+        // 可选的 Prometheus 端点
+        updateMetricsServer();
+
         // 注册监听器
         getProxy().getPluginManager().registerListener(this, new LogListener(this));
 
@@ -63,10 +83,23 @@ public class BungeeLog extends Plugin implements Listener {
             webSocketServer = null;
         }
 
-        // 关闭日志写入器
-        if (logWriter != null) {
-            logWriter.flush();
-            logWriter.close();
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+
+        // 关闭日志会话：移除处理器、取消任务并排空队列中尚未落盘的日志
+        LoggingSession session = loggingSession;
+        if (session != null) {
+            loggingSession = null;
+            session.close();
+        }
+
+        // 会话排空后再关闭预写日志，全部事件都已写入日志文件时清空
+        LogJournal current = journal;
+        if (current != null) {
+            journal = null;
+            current.close();
         }
         getLogger().info("§c[BungeeLog] 插件已禁用!");
     }
@@ -84,27 +117,14 @@ public class BungeeLog extends Plugin implements Listener {
             }
 
             config = ConfigurationProvider.getProvider(YamlConfiguration.class).load(configFile);
-
-            // 读取基本配置
-            logFormat = config.getString("log-format", "[%time%] [%level%] %message%");
-            enableConsoleMirror = config.getBoolean("enable-console-mirror", true);
-            dailyRolling = config.getBoolean("daily-rolling", true);
-
-            // 读取 WebAPI 配置
-            webapiEnabled = config.getBoolean("webapi", false);
-            webapiAddress = config.getString("waaddress", "0.0.0.0:25796");
-            webapiPassword = config.getString("wapassword", "bungeelog");
+            settings = new LogSettings(config, getLogger());
 
         } catch (IOException e) {
             getLogger().severe("无法加载配置文件: " + e.getMessage());
             // 使用默认值
-            logFormat = "[%time%] [%level%] %message%";
-            enableConsoleMirror = true;
-            dailyRolling = true;
-            webapiEnabled = false;
-            webapiAddress = "0.0.0.0:25796";
-            webapiPassword = "bungeelog";
+            settings = new LogSettings(null, getLogger());
         }
+        webapiEnabled = settings.isWebapiEnabled();
     }
 
     // 创建默认配置文件
@@ -119,6 +139,10 @@ public class BungeeLog extends Plugin implements Listener {
             writer.println("daily-rolling: true");
             writer.println("# 日志级别");
             writer.println("log-level: \"ALL\"");
+            writer.println("# 只镜像这些日志器（名称或名称前缀，如 BungeeCord、com.example），留空表示全部");
+            writer.println("log-include-loggers: []");
+            writer.println("# 不镜像这些日志器，优先于包含列表");
+            writer.println("log-exclude-loggers: []");
             writer.println("# 是否记录玩家连接事件");
             writer.println("log-player-connections: true");
             writer.println("# 是否记录玩家聊天消息");
@@ -129,10 +153,65 @@ public class BungeeLog extends Plugin implements Listener {
             writer.println("log-server-switches: true");
             writer.println("# 是否记录Ping请求");
             writer.println("log-pings: false");
+            writer.println("# 高频事件的限流、采样和去重，键为事件类型 id（ping、playerchat、playercommand 等）");
+            writer.println("# rate: 每秒允许的条数，0 表示不限; burst: 允许的突发条数; sample: 采样比例，1 表示全部保留");
+            writer.println("# dedup-window: 同一 IP（玩家事件还要求同一玩家）的相同事件在窗口（毫秒）内只记录第一条，其余汇总为一条抑制数量，0 表示关闭");
+            writer.println("throttle:");
+            writer.println("  # 抑制数量的汇总间隔（毫秒）");
+            writer.println("  summary-interval: 10000");
+            writer.println("  # 去重最多同时跟踪的来源数");
+            writer.println("  dedup-max-sources: 10000");
+            writer.println("  ping:");
+            writer.println("    rate: 20");
+            writer.println("    burst: 40");
+            writer.println("    sample: 1.0");
+            writer.println("    dedup-window: 60000");
+            writer.println("  # 聊天默认不去重：审计日志需要完整记录，需要时再开启");
+            writer.println("  playerchat:");
+            writer.println("    rate: 0");
+            writer.println("    sample: 1.0");
+            writer.println("    dedup-window: 0");
             writer.println("# 最大日志文件数量");
             writer.println("max-log-files: 30");
+            writer.println("# 单个日志文件最大大小（MB），超过后切换到新的编号分段，0 表示不限制");
+            writer.println("max-log-file-size: 100");
+            writer.println("# 日志总大小上限（MB），0 表示不限制");
+            writer.println("max-log-total-size: 0");
+            writer.println("# 日志最长保留天数，0 表示不限制");
+            writer.println("max-log-age: 0");
+            writer.println("# 是否在后台 gzip 压缩已关闭的日志分段");
+            writer.println("compress-logs: true");
+            writer.println("# 日志文件写入方式: file（缓冲输出流）、mmap（预分配的内存映射分段，适合高流量代理）");
+            writer.println("log-sink: \"file\"");
+            writer.println("# mmap 模式下每个分段预分配的大小（MB），写满后切换到下一个分段");
+            writer.println("mmap-segment-size: 64");
+            writer.println("# mmap 模式下强制同步到磁盘的间隔（毫秒）");
+            writer.println("mmap-sync-interval: 1000");
             writer.println("# 日志编码");
             writer.println("encoding: \"UTF-8\"");
+            writer.println("# 是否为每个日志分段维护旁路索引（.idx），供 WebAPI 按时间、玩家和事件类型查询");
+            writer.println("log-index: true");
+            writer.println("# 每个索引块包含的日志行数，越小定位越精确，索引文件越大");
+            writer.println("index-block-lines: 256");
+            writer.println("");
+            writer.println("# ===== 异步写入配置 =====");
+            writer.println("# 日志环形缓冲区容量（会向上取整为 2 的幂）");
+            writer.println("async-queue-size: 8192");
+            writer.println("# 每批最多写入的行数");
+            writer.println("async-batch-size: 256");
+            writer.println("# 刷新到磁盘的间隔（毫秒）");
+            writer.println("async-flush-interval: 1000");
+            writer.println("# 队列已满时的策略: block（阻塞）、drop-oldest（丢弃最旧）、drop（丢弃并计数）");
+            writer.println("# 持久化的事件不会被当作最旧的丢弃，此时 drop-oldest 丢弃新到的这条");
+            writer.println("async-overflow-policy: \"drop-oldest\"");
+            writer.println("");
+            writer.println("# ===== 持久化日志（预写日志） =====");
+            writer.println("# 是否启用持久化模式：事件先写入 journal/events.journal 并落盘，再交给异步写入器，代理崩溃后启动时补写到日志文件");
+            writer.println("journal: false");
+            writer.println("# 组提交间隔（毫秒），同一间隔内的事件合并为一次 fsync；越大 fsync 越少，事件写入日志文件前等待越久（事件线程不等待）");
+            writer.println("journal-commit-interval: 5");
+            writer.println("# 需要持久化的事件类型，留空表示全部写入日志文件的事件");
+            writer.println("journal-events: [\"playerchat\", \"playercommand\"]");
             writer.println("");
             writer.println("# ===== WebAPI 配置 =====");
             writer.println("# 是否启用 WebSocket API");
@@ -141,6 +220,81 @@ public class BungeeLog extends Plugin implements Listener {
             writer.println("waaddress: \"0.0.0.0:25796\"");
             writer.println("# WebSocket 连接密码");
             writer.println("wapassword: \"bungeelog\"");
+            writer.println("# 连接后必须在该时间（毫秒）内发送密码，否则断开（关闭码 4001）");
+            writer.println("wa-auth-timeout: 5000");
+            writer.println("# 同时等待认证的连接上限，超过后新连接直接断开（关闭码 4005），0 表示不限");
+            writer.println("wa-max-pending: 64");
+            writer.println("# 每个 IP 同时保持的连接数上限（含未认证的），超过后断开（关闭码 4004），0 表示不限");
+            writer.println("wa-max-connections-per-ip: 8");
+            writer.println("# 认证失败后该 IP 被拒绝的时间（毫秒），每次连续失败翻倍，最长 wa-auth-backoff-max；期间新连接断开（关闭码 4006），0 表示关闭");
+            writer.println("wa-auth-backoff: 1000");
+            writer.println("wa-auth-backoff-max: 300000");
+            writer.println("# 每个客户端的发送缓冲区上限（消息条数），超过后按策略处理");
+            writer.println("wa-client-buffer-size: 1024");
+            writer.println("# 底层连接允许堆积的最大帧数，超过后消息留在客户端缓冲区");
+            writer.println("wa-socket-window: 64");
+            writer.println("# 慢客户端策略: drop-oldest（丢弃最旧）、coalesce（合并为丢弃通知）、disconnect（断开，关闭码 4003）");
+            writer.println("wa-slow-client-policy: \"drop-oldest\"");
+            writer.println("# 单次日志查询最多返回的条数");
+            writer.println("wa-search-max-results: 1000");
+            writer.println("# 日志查询结果每页的条数");
+            writer.println("wa-search-page-size: 100");
+            writer.println("# 内存中保留的最近广播条数，客户端重连后可按序号补发，0 表示关闭");
+            writer.println("# 默认关闭：开启后即使没有客户端连接，进入历史的事件也要序列化");
+            writer.println("wa-history-size: 0");
+            writer.println("# 最近广播占用的内存上限（KB）");
+            writer.println("wa-history-memory: 1024");
+            writer.println("# 进入最近广播历史的事件类型，留空表示全部；只列出需要补发的类型可以省去其余消息的序列化");
+            writer.println("wa-history-events: []");
+            writer.println("# 是否协商 permessage-deflate 压缩");
+            writer.println("wa-compression: true");
+            writer.println("# 小于该字节数的帧不压缩");
+            writer.println("wa-compression-threshold: 256");
+            writer.println("# 批量窗口（毫秒），窗口内产生的事件合并为一个 JSON 数组帧发送，0 表示逐条发送");
+            writer.println("wa-batch-window: 0");
+            writer.println("# 向客户端推送 {\"type\":\"metrics\"} 运行指标的间隔（毫秒），0 表示不推送");
+            writer.println("wa-metrics-interval: 10000");
+            writer.println("# 远程命令在独立的工作线程中执行，输出按请求 id 逐行回传: 工作线程数、等待队列上限");
+            writer.println("wa-command-threads: 2");
+            writer.println("wa-command-queue: 16");
+            writer.println("# 每个客户端同时执行的命令上限");
+            writer.println("wa-command-concurrency: 2");
+            writer.println("# 每个客户端每秒允许提交的命令数，0 表示不限; 允许的突发条数");
+            writer.println("wa-command-rate: 2");
+            writer.println("wa-command-burst: 5");
+            writer.println("# 命令超时（毫秒），超时后立即回复，之后的输出不再回传");
+            writer.println("wa-command-timeout: 10000");
+            writer.println("# 客户端单条消息的最大字节数，超过的帧直接断开（关闭码 1009），无法解析的请求回复 {\"type\":\"error\"}");
+            writer.println("wa-max-message-size: 65536");
+            writer.println("# Prometheus 文本格式指标端点的监听地址（如 127.0.0.1:9465），留空表示关闭");
+            writer.println("metrics-http: \"\"");
+            writer.println("");
+            writer.println("# ===== 外部日志输出 =====");
+            writer.println("# 每个输出有独立的队列、批量、重试和熔断，某个输出卡住不会影响日志文件和其他输出");
+            writer.println("# 通用选项: enabled, queue-size, batch-size, max-retries, retry-backoff（毫秒）,");
+            writer.println("#          breaker-threshold（连续失败几批后熔断）, breaker-cooldown（毫秒）, events, min-level");
+            writer.println("sinks:");
+            writer.println("  syslog:");
+            writer.println("    type: \"syslog\"");
+            writer.println("    enabled: false");
+            writer.println("    # udp 或 tcp");
+            writer.println("    protocol: \"udp\"");
+            writer.println("    host: \"127.0.0.1\"");
+            writer.println("    port: 514");
+            writer.println("    # TCP 分帧: octet-counting 或 newline");
+            writer.println("    framing: \"octet-counting\"");
+            writer.println("    # syslog 设施，16 为 local0");
+            writer.println("    facility: 16");
+            writer.println("    app-name: \"bungeelog\"");
+            writer.println("    queue-size: 4096");
+            writer.println("    batch-size: 128");
+            writer.println("    max-retries: 3");
+            writer.println("    retry-backoff: 500");
+            writer.println("    breaker-threshold: 5");
+            writer.println("    breaker-cooldown: 30000");
+            writer.println("    # 只转发这些事件类型，留空表示全部");
+            writer.println("    events: []");
+            writer.println("    min-level: \"\"");
         } catch (IOException e) {
             getLogger().severe("无法创建默认配置文件: " + e.getMessage());
         }
@@ -149,14 +303,15 @@ public class BungeeLog extends Plugin implements Listener {
     // 启动 WebSocket 服务器
     private void startWebSocketServer() {
         try {
-            String[] parts = webapiAddress.split(":");
+            LogSettings current = settings;
+            String[] parts = current.getWebapiAddress().split(":");
             String host = parts[0];
             int port = Integer.parseInt(parts[1]);
 
-            webSocketServer = new BungeeWebSocketServer(this, host, port, webapiPassword);  // 修改这里
+            webSocketServer = new BungeeWebSocketServer(this, host, port, current);
             webSocketServer.start();
 
-            getLogger().info("§a[BungeeLog] WebSocket API 服务器启动在: " + webapiAddress);
+            getLogger().info("§a[BungeeLog] WebSocket API 服务器启动在: " + current.getWebapiAddress());
             sendWebAPIMessage("started");
 
         } catch (Exception e) {
@@ -171,12 +326,16 @@ public class BungeeLog extends Plugin implements Listener {
 
         loadConfig();
 
+        LogJournal retired = updateJournal();
+
         // 重新初始化日志系统
-        if (logWriter != null) {
-            logWriter.close();
-        }
         setupLogging();
 
+        // 关闭持久化时，旧会话已排空并刷新到日志文件，此时关闭才能写入最终检查点并清空
+        if (retired != null) {
+            retired.close();
+        }
+
         // 处理 WebSocket 重启
         if (wasWebapiEnabled != webapiEnabled) {
             if (webapiEnabled) {
@@ -192,9 +351,53 @@ public class BungeeLog extends Plugin implements Listener {
             startWebSocketServer();
         }
 
+        updateMetricsServer();
+
         getLogger().info("§a[BungeeLog] 配置重载完成!");
     }
 
+    // 按 metrics-http 启动、停止或更换 Prometheus 端点，地址不变时保留现有实例
+    private synchronized void updateMetricsServer() {
+        String address = settings.getMetricsHttpAddress();
+        if (metricsServer != null) {
+            if (metricsServer.getAddress().equals(address)) return;
+            metricsServer.stop();
+            metricsServer = null;
+        }
+        if (address.isEmpty()) return;
+
+        try {
+            MetricsHttpServer server = new MetricsHttpServer(this, address);
+            server.start();
+            metricsServer = server;
+            getLogger().info("§a[BungeeLog] 指标端点已启动: http://" + address + "/metrics");
+        } catch (Exception e) {
+            getLogger().severe("§c[BungeeLog] 指标端点启动失败: " + e.getMessage());
+        }
+    }
+
+    // 按 journal 开关打开或关闭预写日志，已打开时只更新提交间隔和事件类型
+    // 关闭时返回被停用的预写日志：旧会话仍在向它追加，由调用方在旧会话关闭之后再关闭它
+    private synchronized LogJournal updateJournal() {
+        LogSettings current = settings;
+        if (!current.isJournalEnabled()) {
+            LogJournal retired = journal;
+            journal = null;
+            return retired;
+        }
+        if (journal != null) {
+            journal.configure(current);
+            return null;
+        }
+
+        try {
+            journal = new LogJournal(this, new File(new File(getDataFolder(), "journal"), "events.journal"), current);
+        } catch (IOException e) {
+            getLogger().severe("§c[BungeeLog] 无法打开持久化日志: " + e.getMessage());
+        }
+        return null;
+    }
+
     // 重新加载配置（命令调用）
     public void reloadConfig() {
         reloadLogging();
@@ -205,8 +408,14 @@ public class BungeeLog extends Plugin implements Listener {
         return config;
     }
 
+    // 获取当前配置快照
+    public LogSettings getSettings() {
+        return settings;
+    }
+
     // 设置日志系统
-    private void setupLogging() {
+    private synchronized void setupLogging() {
+        LogSettings current = settings;
         try {
             // 创建 logs 文件夹
             File logsDir = new File(getDataFolder(), "logs");
@@ -214,38 +423,44 @@ public class BungeeLog extends Plugin implements Listener {
                 logsDir.mkdirs();
             }
 
-            // 设置日志文件
-            currentDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-            String fileName = dailyRolling ? "bungee-" + currentDate + ".log" : "bungee.log";
-            logFile = new File(logsDir, fileName);
-
-            // 初始化 PrintWriter
-            logWriter = new PrintWriter(new FileWriter(logFile, true), true);
+            // 设置滚动日志文件：按日期或大小切分，旧分段后台压缩
+            // 重载时旧会话还在写它的分段，新会话从新分段开始，两边的偏移和索引互不干扰
+            LoggingSession previous = loggingSession;
+            RollingLogFile rollingFile = new RollingLogFile(this, logsDir, current,
+                    previous != null ? previous.getWriter().getCurrentFile() : null);
+
+            // 外部输出各自有独立的队列和线程，写入线程只做非阻塞投递
+            SinkRegistry sinks = new SinkRegistry(this, current.getSinks());
+
+            AsyncLogWriter writer = new AsyncLogWriter(this, rollingFile, current.getCharset(), current.getLogTemplate(),
+                    logClock, current.getAsyncQueueSize(), current.getAsyncBatchSize(),
+                    current.getAsyncFlushInterval(), current.getAsyncOverflowPolicy(), event -> {
+                        broadcastEvent(event);
+                        sinks.dispatch(event);
+                    }, journal);
+            EventThrottle throttle = new EventThrottle(this, current.getThrottle());
+            LoggingSession session = new LoggingSession(this, writer, sinks, throttle);
+            if (throttle.isEnabled()) {
+                session.schedule(() -> throttle.sweep(false),
+                        current.getThrottle().getSummaryInterval(), TimeUnit.MILLISECONDS);
+            }
 
-            // 添加自定义日志处理器
-            if (enableConsoleMirror) {
-                Logger logger = Logger.getLogger("");
-                LogHandler customHandler = new LogHandler(this);
-                customHandler.setFormatter(new LogFormatter(this));
-                logger.addHandler(customHandler);
+            // 添加自定义日志处理器（在切换前安装，切换后才开始生效）
+            if (current.isConsoleMirror()) {
+                session.installConsoleMirror(current.getLoggerFilter());
             }
 
-            // 启动日志轮换检查任务
-            if (dailyRolling) {
-                getProxy().getScheduler().schedule(this, () -> {
-                    String nowDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
-                    if (!nowDate.equals(currentDate)) {
-                        if (logWriter != null) {
-                            logWriter.close();
-                        }
-                        setupLogging();
-                    }
-                }, 1, 1, TimeUnit.MINUTES);
+            // 上次运行未写入日志文件的事件先于新事件进入新会话
+            LogJournal currentJournal = journal;
+            if (currentJournal != null) {
+                currentJournal.replay(writer);
             }
 
-            // 清理旧日志文件
-            if (config != null && config.getInt("max-log-files", 30) > 0) {
-                cleanOldLogs();
+            // 先切换到新会话再关闭旧会话，避免切换期间丢日志或重复写入
+            loggingSession = session;
+            if (previous != null) {
+                previous.getWriter().supersede();
+                previous.close();
             }
 
             writeLog("INFO", "BungeeLog 日志系统初始化完成");
@@ -256,98 +471,106 @@ public class BungeeLog extends Plugin implements Listener {
         }
     }
 
-    // 清理旧日志文件
-    private void cleanOldLogs() {
-        try {
-            File logsDir = new File(getDataFolder(), "logs");
-            File[] files = logsDir.listFiles((dir, name) -> name.startsWith("bungee-") && name.endsWith(".log"));
+    // 写入日志
+    public void writeLog(String level, String message) {
+        emit(EventType.PLUGIN, level, true, null, null, null, null, message);
+    }
 
-            if (files != null && files.length > config.getInt("max-log-files", 30)) {
-                java.util.Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+    // 限流汇总等内部消息，不经过限流判断
+    void writeSummary(String message) {
+        LoggingSession session = loggingSession;
+        if (session == null) return;
 
-                for (int i = config.getInt("max-log-files", 30); i < files.length; i++) {
-                    files[i].delete();
-                }
-            }
-        } catch (Exception e) {
-            getLogger().warning("清理旧日志文件失败: " + e.getMessage());
-        }
+        publish(session, EventType.PLUGIN, "INFO", true, null, null, null, null, message);
     }
 
-    // 写入日志
-    public void writeLog(String level, String message) {
-        try {
-            String time = new SimpleDateFormat("HH:mm:ss").format(new Date());
-            String formattedMessage = logFormat
-                    .replace("%time%", time)
-                    .replace("%level%", level)
-                    .replace("%message%", message);
-
-            if (logWriter != null) {
-                logWriter.println(formattedMessage);
-                logWriter.flush();
-            }
+    // 发布事件：抢占环形缓冲区槽位、填充后发布，调用线程上不做格式化也不分配事件对象
+    public void emit(EventType type, String level, boolean logged, ProxiedPlayer player,
+                     String address, String server, String otherServer, String text) {
+        LoggingSession session = loggingSession;
+        if (session == null) return;
+
+        // 限流、采样和去重在抢占槽位之前判断，被拒绝的事件只累加计数
+        if (!session.getThrottle().admit(type, player, address, text)) return;
 
-            // 同时发送到 WebSocket
-            if (webapiEnabled && webSocketServer != null) {
-                String jsonMessage = String.format(
-                        "{\"type\":\"plugin\",\"message\":\"%s\"}",
-                        escapeJson(message)
-                );
-                webSocketServer.broadcast(jsonMessage);
+        publish(session, type, level, logged, player, address, server, otherServer, text);
+    }
+
+    private void publish(LoggingSession session, EventType type, String level, boolean logged, ProxiedPlayer player,
+                         String address, String server, String otherServer, String text) {
+        AsyncLogWriter writer = session.getWriter();
+        LogJournal sessionJournal = writer.getJournal();
+        if (logged && sessionJournal != null && sessionJournal.covers(type)) {
+            // 持久化模式：记录追加到预写日志后立即发布，由写入线程等待落盘，事件线程不阻塞
+            long sequence = sessionJournal.append(writer, type, level, player, address, server, otherServer, text);
+            if (sequence >= 0) {
+                writer.publish(sequence);
             }
+            return;
+        }
 
-        } catch (Exception e) {
-            getLogger().severe("写入日志失败: " + e.getMessage());
+        long sequence = writer.claim();
+        if (sequence < 0) return;
+        try {
+            writer.slot(sequence).set(type, level, logged, player, address, server, otherServer, text);
+        } finally {
+            // 抢占到的槽位必须发布，否则消费者会停在这里
+            writer.publish(sequence);
         }
     }
 
+    // 把事件推送到 WebSocket，由写入线程在消费环形缓冲区时调用
+    private void broadcastEvent(LogEvent event) {
+        BungeeWebSocketServer server = webSocketServer;
+        if (!webapiEnabled || server == null) return;
+
+        // 按订阅表分发，没有订阅者的消息不会被序列化
+        server.publish(event, jsonBuffer.get(), textBuffer.get());
+    }
+
     // 发送 WebAPI 状态消息
     public void sendWebAPIMessage(String status) {
-        if (webapiEnabled && webSocketServer != null) {
-            String jsonMessage = String.format(
-                    "{\"type\":\"bungeelogwebapi\",\"message\":\"%s\"}",
-                    status
-            );
-            webSocketServer.broadcast(jsonMessage);
+        BungeeWebSocketServer server = webSocketServer;
+        if (webapiEnabled && server != null) {
+            server.broadcast(statusJson(status));
         }
     }
 
-    // 发送玩家事件到 WebSocket
-    public void sendPlayerEvent(String eventType, ProxiedPlayer player, String... extra) {
-        if (!webapiEnabled || webSocketServer == null) return;
-
-        StringBuilder json = new StringBuilder();
-        json.append("{");
-        json.append("\"type\":\"").append(eventType).append("\",");
-        json.append("\"name\":\"").append(escapeJson(player.getName())).append("\",");
-        json.append("\"uuid\":\"").append(player.getUniqueId().toString()).append("\"");
-
-        // 添加额外字段
-        if (extra.length >= 2) {
-            for (int i = 0; i < extra.length; i += 2) {
-                json.append(",\"").append(extra[i]).append("\":\"")
-                        .append(escapeJson(extra[i + 1])).append("\"");
-            }
-        }
-
-        json.append("}");
-        webSocketServer.broadcast(json.toString());
+    // 构造 {"type":"bungeelogwebapi","message":...}
+    public static String statusJson(String status) {
+        StringBuilder json = new StringBuilder(64);
+        new JsonWriter(json).beginObject()
+                .field("type", "bungeelogwebapi")
+                .field("message", status)
+                .endObject();
+        return json.toString();
     }
 
     // 转义 JSON 字符串
     public String escapeJson(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n")
-                .replace("\r", "\\r")
-                .replace("\t", "\\t");
+        return JsonWriter.escape(s);
     }
 
     // 获取日志文件
     public File getLogFile() {
-        return this.logFile;
+        LoggingSession session = loggingSession;
+        return session != null ? session.getWriter().getCurrentFile() : null;
+    }
+
+    public LoggingSession getLoggingSession() {
+        return loggingSession;
+    }
+
+    public LogJournal getJournal() {
+        return journal;
+    }
+
+    public LogMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SelfDiagnostics getDiagnostics() {
+        return diagnostics;
     }
 
     public static BungeeLog getInstance() {
@@ -36,6 +36,10 @@ public class BungeeLogCommand extends Command {
                 handleWebAPI(sender, args);
                 break;
 
+            case "metrics":
+                showMetrics(sender);
+                break;
+
             case "test":
                 plugin.writeLog("INFO", "这是来自命令的测试日志消息");
                 if (plugin.isWebapiEnabled()) {
@@ -64,11 +68,50 @@ public class BungeeLogCommand extends Command {
             sender.sendMessage(new TextComponent("§6=== WebAPI 状态 ==="));
             sender.sendMessage(new TextComponent("§e启用状态: §f" + (plugin.isWebapiEnabled() ? "§a开启" : "§c关闭")));
             if (plugin.isWebapiEnabled()) {
-                sender.sendMessage(new TextComponent("§e地址: §f" + plugin.getConfig().getString("waaddress")));
-                sender.sendMessage(new TextComponent("§e密码: §f" + plugin.getConfig().getString("wapassword")));
+                sender.sendMessage(new TextComponent("§e地址: §f" + plugin.getSettings().getWebapiAddress()));
+                sender.sendMessage(new TextComponent("§e密码: §f" + plugin.getSettings().getWebapiPassword()));
                 if (plugin.getWebSocketServer() != null) {
                     sender.sendMessage(new TextComponent("§e客户端数: §f" +
                             plugin.getWebSocketServer().getConnections().size()));
+                    sender.sendMessage(new TextComponent("§e广播序号: §f" + plugin.getWebSocketServer().getSequence()
+                            + " §7历史缓存: §f" + plugin.getWebSocketServer().getHistorySize() + " 条"));
+                    WebSocketStats stats = plugin.getWebSocketServer().getStats();
+                    if (stats.getCompressedFrames() > 0) {
+                        long input = stats.getCompressInputBytes();
+                        long output = stats.getCompressOutputBytes();
+                        sender.sendMessage(new TextComponent("§e压缩: §f" + stats.getCompressedFrames() + " 帧"
+                                + " §7" + input + " -> " + output + " 字节"
+                                + " §7节省: §f" + (input > 0 ? (input - output) * 100 / input : 0) + "%"
+                                + " §7耗时: §f" + stats.getCompressNanos() / 1_000_000L + " ms"));
+                    }
+                    if (plugin.getWebSocketServer().isBatching()) {
+                        long batches = stats.getBatches();
+                        sender.sendMessage(new TextComponent("§e批量: §f" + batches + " 帧"
+                                + " §7消息: §f" + stats.getBatchedMessages()
+                                + " §7平均: §f" + (batches > 0 ? stats.getBatchedMessages() / batches : 0) + " 条/帧"));
+                    }
+                    ConnectionGuard guard = plugin.getWebSocketServer().getGuard();
+                    sender.sendMessage(new TextComponent("§e连接控制: §f等待认证 " + plugin.getWebSocketServer().getPendingCount()
+                            + " §7拒绝(单 IP 上限): §f" + guard.getRejectedPerAddress()
+                            + " §7拒绝(繁忙): §f" + guard.getRejectedBusy()
+                            + " §7拒绝(退避): §f" + guard.getRejectedBackoff()));
+                    sender.sendMessage(new TextComponent("§e认证: §f失败 " + guard.getAuthFailures()
+                            + " §7超时: §f" + guard.getAuthTimeouts()
+                            + " §7退避中的 IP: §f" + guard.getBlockedAddresses()
+                            + " §7连接中的 IP: §f" + guard.getTrackedAddresses()));
+                    RemoteCommandExecutor commands = plugin.getWebSocketServer().getCommands();
+                    sender.sendMessage(new TextComponent("§e远程命令: §f" + commands.getExecutedCount() + " 条"
+                            + " §7执行中: §f" + commands.getActiveCount()
+                            + " §7排队: §f" + commands.getQueuedCount()
+                            + " §7拒绝: §f" + commands.getRejectedCount()
+                            + " §7超时: §f" + commands.getTimedOutCount()
+                            + " §7失败: §f" + commands.getFailedCount()));
+                    for (ClientSession session : plugin.getWebSocketServer().getClientSessions()) {
+                        sender.sendMessage(new TextComponent("§e  └ " + session.getConnection().getRemoteSocketAddress()
+                                + " §7积压: §f" + session.getBacklog()
+                                + " §7已发送: §f" + session.getSentCount()
+                                + " §7丢弃: §f" + session.getDroppedCount()));
+                    }
                 }
             }
             return;
@@ -87,9 +130,9 @@ public class BungeeLogCommand extends Command {
             case "broadcast":
                 if (args.length > 2 && plugin.getWebSocketServer() != null) {
                     String message = String.join(" ", java.util.Arrays.copyOfRange(args, 2, args.length));
-                    String jsonMsg = String.format("{\"type\":\"plugin\",\"message\":\"%s\"}",
-                            plugin.escapeJson(message));
-                    plugin.getWebSocketServer().broadcast(jsonMsg);
+                    StringBuilder jsonMsg = new StringBuilder();
+                    LogEvent.plugin("INFO", message).writePluginJson(jsonMsg, new StringBuilder());
+                    plugin.getWebSocketServer().broadcast(jsonMsg.toString());
                     sender.sendMessage(new TextComponent("§a[BungeeLog] 已广播消息!"));
                 }
                 break;
@@ -100,27 +143,107 @@ public class BungeeLogCommand extends Command {
         sender.sendMessage(new TextComponent("§6=== BungeeLog 状态 ==="));
         try {
             sender.sendMessage(new TextComponent("§e日志文件: §f" + plugin.getLogFile().getAbsolutePath()));
-            sender.sendMessage(new TextComponent("§e日志格式: §f" + plugin.getConfig().getString("log-format")));
-            sender.sendMessage(new TextComponent("§e每日分割: §f" + plugin.getConfig().getBoolean("daily-rolling")));
-            sender.sendMessage(new TextComponent("§e控制台镜像: §f" + plugin.getConfig().getBoolean("enable-console-mirror")));
+            sender.sendMessage(new TextComponent("§e日志格式: §f" + plugin.getSettings().getLogFormat()));
+            sender.sendMessage(new TextComponent("§e每日分割: §f" + plugin.getSettings().isDailyRolling()));
+            sender.sendMessage(new TextComponent("§e控制台镜像: §f" + plugin.getSettings().isConsoleMirror()));
             sender.sendMessage(new TextComponent("§eWebAPI: §f" + (plugin.isWebapiEnabled() ? "§a开启" : "§c关闭")));
 
             if (plugin.isWebapiEnabled()) {
-                sender.sendMessage(new TextComponent("§e  └ 地址: §f" + plugin.getConfig().getString("waaddress")));
+                sender.sendMessage(new TextComponent("§e  └ 地址: §f" + plugin.getSettings().getWebapiAddress()));
                 if (plugin.getWebSocketServer() != null) {
                     sender.sendMessage(new TextComponent("§e  └ 客户端: §f" +
                             plugin.getWebSocketServer().getConnections().size()));
                 }
             }
+
+            SelfDiagnostics diagnostics = plugin.getDiagnostics();
+            sender.sendMessage(new TextComponent("§e诊断: §7警告: §f" + diagnostics.getWarningCount()
+                    + " §7错误: §f" + diagnostics.getErrorCount()
+                    + " §7省略: §f" + diagnostics.getSuppressedCount()
+                    + " §7阻断回环: §f" + diagnostics.getLoopsBlocked()
+                    + (diagnostics.getLastProblem() != null ? " §7最近: §c" + diagnostics.getLastProblem() : "")));
+
+            LogJournal journal = plugin.getJournal();
+            if (journal != null) {
+                sender.sendMessage(new TextComponent("§e持久化日志: §7序号: §f" + journal.getLastSequence()
+                        + " §7检查点: §f" + journal.getCheckpoint()
+                        + " §7提交: §f" + journal.getCommitCount()
+                        + " §7超时确认: §f" + journal.getLateAckCount()
+                        + (journal.getFailedCommitCount() > 0 ? " §7提交失败: §c" + journal.getFailedCommitCount() : "")
+                        + (journal.getLostBytes() > 0 ? " §7放弃: §c" + journal.getLostBytes() + " 字节" : "")
+                        + " §7启动恢复: §f" + journal.getRecoveredCount()
+                        + (journal.getTornBytes() > 0 ? " §7截断: §f" + journal.getTornBytes() + " 字节" : "")));
+            }
+
+            LoggingSession session = plugin.getLoggingSession();
+            if (session != null) {
+                EventThrottle throttle = session.getThrottle();
+                if (throttle.isEnabled()) {
+                    sender.sendMessage(new TextComponent("§e限流: §7超速丢弃: §f" + throttle.getRateLimitedCount()
+                            + " §7采样跳过: §f" + throttle.getSampledOutCount()
+                            + " §7去重抑制: §f" + throttle.getDeduplicatedCount()
+                            + " §7跟踪来源: §f" + throttle.getTrackedSources()));
+                }
+                for (SinkPipeline sink : session.getSinks().getPipelines()) {
+                    sender.sendMessage(new TextComponent("§e输出 " + sink.getName() + ": §f" + sink.getState()
+                            + " §7队列: §f" + sink.getQueueSize()
+                            + " §7已投递: §f" + sink.getDeliveredCount()
+                            + " §7丢弃: §f" + sink.getDroppedCount()
+                            + " §7重试: §f" + sink.getRetryCount()
+                            + (sink.getLastError() != null ? " §7最近错误: §c" + sink.getLastError() : "")));
+                }
+            }
         } catch (Exception e) {
             sender.sendMessage(new TextComponent("§c获取状态失败: " + e.getMessage()));
         }
     }
 
+    private void showMetrics(CommandSender sender) {
+        LogMetrics metrics = plugin.getMetrics();
+        LogMetrics.Gauges gauges = LogMetrics.Gauges.collect(plugin);
+
+        sender.sendMessage(new TextComponent("§6=== BungeeLog 运行指标 ==="));
+        StringBuilder events = new StringBuilder("§e事件: ");
+        for (EventType type : EventType.values()) {
+            long count = metrics.getEvents(type);
+            if (count > 0) {
+                events.append("§7").append(type.getId()).append(" §f").append(count).append(' ');
+            }
+        }
+        sender.sendMessage(new TextComponent(events.toString().trim()));
+        sender.sendMessage(new TextComponent("§e写入: §f" + metrics.getBytesWritten() / 1024L + " KB"
+                + " §7刷新: §f" + metrics.getFlushes() + " 次"
+                + " §7队列: §f" + gauges.getQueueDepth() + "/" + gauges.getQueueCapacity()));
+        sender.sendMessage(new TextComponent("§e丢弃: §7队列满 §f" + gauges.getDroppedQueue()
+                + " §7限流 §f" + gauges.getDroppedThrottle()
+                + " §7外部输出 §f" + gauges.getDroppedSinks()
+                + " §7客户端 §f" + gauges.getDroppedClients()));
+        sendLatency(sender, "刷新耗时", metrics.getFlushLatency());
+        sendLatency(sender, "事件到磁盘", metrics.getEventToDisk());
+        sendLatency(sender, "事件到客户端", metrics.getEventToSocket());
+        for (ClientSession session : gauges.getClients()) {
+            sender.sendMessage(new TextComponent("§e  └ " + session.getConnection().getRemoteSocketAddress()
+                    + " §7积压: §f" + session.getBacklog()
+                    + " §7已发送: §f" + session.getSentCount()
+                    + " §7丢弃: §f" + session.getDroppedCount()));
+        }
+    }
+
+    // 延迟以微秒显示
+    private void sendLatency(CommandSender sender, String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        sender.sendMessage(new TextComponent("§e" + name + ": §7次数 §f" + snapshot.getCount()
+                + " §7p50 §f" + snapshot.percentile(0.5) / 1000L
+                + " §7p99 §f" + snapshot.percentile(0.99) / 1000L
+                + " §7p999 §f" + snapshot.percentile(0.999) / 1000L
+                + " §7最大 §f" + snapshot.getMax() / 1000L + " µs"));
+    }
+
     private void sendHelp(CommandSender sender) {
         sender.sendMessage(new TextComponent("§6=== BungeeLog 帮助 ==="));
         sender.sendMessage(new TextComponent("§e/bungeelog reload §7- 重载配置文件"));
         sender.sendMessage(new TextComponent("§e/bungeelog status §7- 查看插件状态"));
+        sender.sendMessage(new TextComponent("§e/bungeelog metrics §7- 查看运行指标"));
         sender.sendMessage(new TextComponent("§e/bungeelog webapi §7- 查看WebAPI状态"));
         sender.sendMessage(new TextComponent("§e/bungeelog webapi restart §7- 重启WebAPI"));
         sender.sendMessage(new TextComponent("§e/bungeelog webapi broadcast <msg> §7- 广播消息"));
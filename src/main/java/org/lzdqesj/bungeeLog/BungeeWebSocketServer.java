@@ -1,141 +1,653 @@
 package org.lzdqesj.bungeeLog;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.java_websocket.WebSocket;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
+import org.java_websocket.extensions.IExtension;
 import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.protocols.IProtocol;
+import org.java_websocket.protocols.Protocol;
 import org.java_websocket.server.WebSocketServer;
 
 public class BungeeWebSocketServer extends WebSocketServer {
 
+    // 认证期限时间轮的精度
+    private static final long AUTH_TICK_MILLIS = 100;
+
     private final BungeeLog plugin;
-    private final String password;
-    private final ConcurrentHashMap<WebSocket, Boolean> authenticatedClients;
+    private final byte[] passwordBytes;
+    // 等待认证的连接及其认证期限
+    private final Map<WebSocket, TimingWheel.Timeout> pendingClients;
+    // 所有认证期限共用一个时间轮，不为每个连接单独创建定时任务
+    private final TimingWheel authDeadlines;
+    private final long authTimeout;
+    // 每个 IP 的连接数、等待认证的连接总数和认证失败退避
+    private final ConnectionGuard guard;
+    // 已认证连接的写时复制快照，广播时直接遍历，无需逐个查表
+    private final CopyOnWriteArraySet<ClientSession> authenticatedClients;
     private ScheduledExecutorService executor;
+    // 日志查询需要读磁盘，放到单独的低优先级线程，不占用网络线程和推送线程
+    private final ExecutorService searchExecutor;
+    // 远程命令在有界线程池中执行，结果和输出按请求 id 回传
+    private final RemoteCommandExecutor commands;
+    // 按请求 type 注册的处理器，构造后不再修改
+    private final Map<String, RequestHandler> handlers = new HashMap<>();
+    // 单条客户端消息的上限（字节），超过的帧在协议层直接关闭连接，解压后超限的消息回复 too-large
+    private final int maxMessageSize;
+
+    // 慢客户端隔离配置
+    private final int clientBufferSize;
+    private final int socketWindow;
+    private final ClientSession.SlowClientPolicy slowClientPolicy;
+    // 批量窗口（毫秒），0 表示逐条发送
+    private final long batchWindow;
+    private final WebSocketStats stats;
+
+    // 广播序号和最近历史，两者都由 history 的锁保护，保证序号顺序与各客户端的入队顺序一致
+    private final BroadcastHistory history;
+    private long sequence;
+    // 哪些事件进入历史环，与客户端订阅使用同一套条件
+    private final Subscription historyFilter;
+    // 按事件类型索引的订阅表，订阅变化时在 history 锁内整体重建
+    private volatile ClientSession[][] textRoutes;
+    private volatile ClientSession[][] playerRoutes;
+    // 服务器实例标识，重启后序号从头开始，客户端据此判断能否续传
+    private final long epoch = System.currentTimeMillis();
+
+    public BungeeWebSocketServer(BungeeLog plugin, String host, int port, LogSettings settings) {
+        this(plugin, host, port, settings, new WebSocketStats());
+    }
 
-    public BungeeWebSocketServer(BungeeLog plugin, String host, int port, String password) {
-        super(new InetSocketAddress(host, port));
+    private BungeeWebSocketServer(BungeeLog plugin, String host, int port, LogSettings settings,
+                                  WebSocketStats stats) {
+        super(new InetSocketAddress(host, port), drafts(settings, stats));
         this.plugin = plugin;
-        this.password = password;
-        this.authenticatedClients = new ConcurrentHashMap<>();
+        this.passwordBytes = settings.getWebapiPassword().getBytes(StandardCharsets.UTF_8);
+        this.clientBufferSize = settings.getWebapiClientBufferSize();
+        this.socketWindow = settings.getWebapiSocketWindow();
+        this.slowClientPolicy = settings.getWebapiSlowClientPolicy();
+        this.batchWindow = Math.max(0, settings.getWebapiBatchWindow());
+        this.stats = stats;
+        this.history = new BroadcastHistory(settings.getWebapiHistorySize(), settings.getWebapiHistoryBytes());
+        this.historyFilter = Subscription.compile(settings.getWebapiHistoryEvents(), null, null, null);
+        this.pendingClients = new ConcurrentHashMap<>();
+        this.authDeadlines = new TimingWheel(plugin, AUTH_TICK_MILLIS, 128);
+        this.authTimeout = Math.max(AUTH_TICK_MILLIS, settings.getWebapiAuthTimeout());
+        this.guard = new ConnectionGuard(settings);
+        this.authenticatedClients = new CopyOnWriteArraySet<>();
+        rebuildRoutes();
         this.executor = Executors.newSingleThreadScheduledExecutor();
+        this.searchExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "BungeeLog-Search");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.commands = new RemoteCommandExecutor(plugin, settings, executor);
+        this.maxMessageSize = settings.getWebapiMaxMessageSize();
+
+        handlers.put("command", this::handleCommand);
+        handlers.put("subscribe", this::subscribe);
+        handlers.put("replay", this::replay);
+        handlers.put("search", this::submitSearch);
+
+        // 定期把慢客户端缓冲区中积压的消息继续推送出去；批量模式下按窗口间隔合并发送
+        long period = batchWindow > 0 ? batchWindow : 50;
+        this.executor.scheduleWithFixedDelay(this::pumpAll, period, period, TimeUnit.MILLISECONDS);
+
+        this.executor.scheduleAtFixedRate(authDeadlines::tick, AUTH_TICK_MILLIS, AUTH_TICK_MILLIS,
+                TimeUnit.MILLISECONDS);
+        this.executor.scheduleWithFixedDelay(guard::sweep, 1, 1, TimeUnit.MINUTES);
+
+        long metricsInterval = settings.getWebapiMetricsInterval();
+        if (metricsInterval > 0) {
+            this.executor.scheduleWithFixedDelay(this::pushMetrics, metricsInterval, metricsInterval,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 客户端请求的处理器
+    private interface RequestHandler {
+        void handle(ClientSession session, WebSocketRequest request) throws Exception;
+    }
+
+    // 启用压缩时协商 permessage-deflate，客户端不支持时 Draft_6455 自动退回不压缩
+    // 子协议按顺序匹配：二进制优先，其次 JSON，最后的空协议接受不带子协议的客户端（JSON）
+    private static List<Draft> drafts(LogSettings settings, WebSocketStats stats) {
+        List<IExtension> extensions = settings.isWebapiCompression()
+                ? Collections.<IExtension>singletonList(
+                        new MeteredDeflateExtension(stats, settings.getWebapiCompressionThreshold()))
+                : Collections.<IExtension>emptyList();
+        List<IProtocol> protocols = Arrays.<IProtocol>asList(
+                new Protocol(BinaryProtocol.SUBPROTOCOL),
+                new Protocol(BinaryProtocol.JSON_SUBPROTOCOL),
+                new Protocol(""));
+        return Collections.<Draft>singletonList(new Draft_6455(extensions, protocols,
+                settings.getWebapiMaxMessageSize()));
+    }
+
+    // 握手时协商到的子协议是否为二进制
+    private static boolean isBinary(WebSocket conn) {
+        IProtocol protocol = conn.getProtocol();
+        return protocol != null && BinaryProtocol.SUBPROTOCOL.equals(protocol.getProvidedProtocol());
     }
 
     @Override
     public void onOpen(WebSocket conn, ClientHandshake handshake) {
-        plugin.getLogger().info("WebSocket 客户端连接: " + conn.getRemoteSocketAddress());
-        authenticatedClients.put(conn, false);
+        // 连接洪泛时逐条记录只会放大开销，拒绝的连接只记调试信息和计数
+        ConnectionGuard.Rejection rejection = guard.admit(conn, pendingClients.size());
+        if (rejection != null) {
+            plugin.getDiagnostics().fine("WebSocket 拒绝连接: " + conn.getRemoteSocketAddress() + " - " + rejection.getReason());
+            conn.close(rejection.getCode(), rejection.getReason());
+            return;
+        }
+        plugin.getDiagnostics().info("WebSocket 客户端连接: " + conn.getRemoteSocketAddress());
 
-        // 5秒后检查是否认证
-        executor.schedule(() -> {
-            if (authenticatedClients.containsKey(conn) && !authenticatedClients.get(conn)) {
-                plugin.getLogger().warning("WebSocket 客户端未认证，断开连接: " + conn.getRemoteSocketAddress());
+        // 期限内未认证则断开
+        pendingClients.put(conn, authDeadlines.schedule(() -> {
+            if (pendingClients.remove(conn) != null) {
+                guard.authTimedOut();
+                plugin.getDiagnostics().warning("WebSocket 客户端未认证，断开连接: " + conn.getRemoteSocketAddress());
                 conn.close(4001, "Authentication timeout");
-                authenticatedClients.remove(conn);
             }
-        }, 5, TimeUnit.SECONDS);
+        }, authTimeout));
     }
 
     @Override
     public void onClose(WebSocket conn, int code, String reason, boolean remote) {
-        authenticatedClients.remove(conn);
-        plugin.getLogger().info("WebSocket 客户端断开: " + conn.getRemoteSocketAddress() + " - " + reason);
+        removeClient(conn);
+        if (guard.release(conn)) {
+            plugin.getDiagnostics().info("WebSocket 客户端断开: " + conn.getRemoteSocketAddress() + " - " + reason);
+        }
     }
 
     @Override
     public void onMessage(WebSocket conn, String message) {
-        Boolean isAuth = authenticatedClients.get(conn);
-        if (isAuth == null) return;
-
-        if (!isAuth) {
-            // 验证密码
-            if (message.trim().equals(password)) {
-                authenticatedClients.put(conn, true);
-                conn.send("{\"type\":\"auth\",\"status\":\"success\"}");
-                plugin.getLogger().info("WebSocket 客户端认证成功: " + conn.getRemoteSocketAddress());
-
-                // 发送 WebAPI 已启动消息
-                String startedMsg = "{\"type\":\"bungeelogwebapi\",\"message\":\"started\"}";
-                conn.send(startedMsg);
+        TimingWheel.Timeout deadline = pendingClients.remove(conn);
+        if (deadline != null) {
+            deadline.cancel();
+            // 认证失败的回复直接发送：这时还没有会话，也没有其他线程向这个连接发送
+            // 退避期内的来源不再比对密码
+            if (!guard.checkAuthAllowed(conn)) {
+                conn.send("{\"type\":\"auth\",\"status\":\"failed\"}");
+                conn.close(ConnectionGuard.Rejection.BACKOFF.getCode(), ConnectionGuard.Rejection.BACKOFF.getReason());
+                return;
+            }
+            // 验证密码，比较时间与内容无关
+            if (MessageDigest.isEqual(message.trim().getBytes(StandardCharsets.UTF_8), passwordBytes)) {
+                guard.authSucceeded(conn);
+                ClientSession session;
+                synchronized (history) {
+                    session = new ClientSession(conn, clientBufferSize, socketWindow, slowClientPolicy,
+                            sequence + 1, batchWindow > 0, stats, isBinary(conn), executor);
+                    conn.setAttachment(session);
+                    authenticatedClients.add(session);
+                    rebuildRoutes();
+                }
+                // seq 是实时推送的第一条序号，更早的可以用 replay 请求补发
+                StringBuilder auth = new StringBuilder(96);
+                new JsonWriter(auth).beginObject()
+                        .field("type", "auth")
+                        .field("status", "success")
+                        .field("seq", session.getFirstSequence())
+                        .field("protocol", session.isBinary() ? BinaryProtocol.SUBPROTOCOL : BinaryProtocol.JSON_SUBPROTOCOL)
+                        .field("epoch", epoch)
+                        .endObject();
+                // 认证回复和 WebAPI 已启动消息先于认证期间已入队的推送发出
+                session.start(auth.toString(), BungeeLog.statusJson("started"));
+                plugin.getDiagnostics().audit("WebSocket 客户端认证成功: " + conn.getRemoteSocketAddress());
             } else {
+                guard.authFailed(conn);
                 conn.send("{\"type\":\"auth\",\"status\":\"failed\"}");
-                plugin.getLogger().warning("WebSocket 客户端认证失败: " + conn.getRemoteSocketAddress());
+                plugin.getDiagnostics().audit("WebSocket 客户端认证失败: " + conn.getRemoteSocketAddress());
                 conn.close(4002, "Invalid password");
-                authenticatedClients.remove(conn);
             }
             return;
         }
+        ClientSession session = conn.getAttachment();
+        if (session == null) return;
 
         // 已认证客户端可以发送命令等
-        plugin.getLogger().info("WebSocket 消息: " + message);
-        
-        // 处理客户端请求
+        plugin.getDiagnostics().fine("WebSocket 消息: " + message);
+        if (exceedsUtf8Length(message, maxMessageSize)) {
+            sendError(session, null, null, "too-large", "消息过长");
+            return;
+        }
+
+        WebSocketRequest request;
         try {
-            // 简单的 JSON 解析，处理 {"type":"command","command":"占位符"} 格式
-            if (message.contains("\"type\":\"command\"")) {
-                // 提取 command 值
-                int commandStart = message.indexOf("\"command\":\"") + ("\"command\":\"").length();
-                int commandEnd = message.indexOf("\"", commandStart);
-                if (commandStart > -1 && commandEnd > commandStart) {
-                    String command = message.substring(commandStart, commandEnd);
-                    plugin.getLogger().info("执行命令: " + command);
-                    
-                    // 以控制台身份执行命令
-                    plugin.getProxy().getPluginManager().dispatchCommand(
-                        plugin.getProxy().getConsole(), 
-                        command
-                    );
-                    
-                    // 发送执行结果
-                    conn.send("{\"type\":\"command\",\"status\":\"success\",\"command\":\"" + command + "\"}");
-                }
-            }
+            request = WebSocketRequest.parse(message);
+        } catch (IOException e) {
+            sendError(session, null, null, "bad-request", e.getMessage());
+            return;
+        }
+        RequestHandler handler = handlers.get(request.getType());
+        if (handler == null) {
+            sendError(session, request.getId(), request.getType(), "unknown-type", "不支持的请求类型");
+            return;
+        }
+        try {
+            handler.handle(session, request);
         } catch (Exception e) {
-            plugin.getLogger().severe("处理客户端请求失败: " + e.getMessage());
-            conn.send("{\"type\":\"command\",\"status\":\"error\",\"message\":\"处理请求失败\"}");
+            plugin.getDiagnostics().severe("处理客户端请求失败: " + e.getMessage());
+            sendError(session, request.getId(), request.getType(), "internal", "处理请求失败");
+        }
+    }
+
+    // wa-max-message-size 按 UTF-8 字节计算：逐字符累加编码后的长度，超过上限即停止，不做实际编码
+    static boolean exceedsUtf8Length(String message, int limit) {
+        int length = message.length();
+        if (length > limit) return true;
+        if ((long) length * 3 <= limit) return false;
+
+        long bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                // 代理对两个字符共 4 字节
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+            if (bytes > limit) return true;
+        }
+        return false;
+    }
+
+    // {"type":"error","id":"1","request":"search","code":"bad-request","message":"..."}，无法解析时没有 id 和 request
+    private static void sendError(ClientSession session, String id, String request, String code, String message) {
+        if (!session.getConnection().isOpen()) return;
+
+        StringBuilder out = new StringBuilder(128);
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", "error");
+        if (id != null) {
+            json.field("id", id);
+        }
+        if (request != null) {
+            json.field("request", request);
         }
+        json.field("code", code)
+                .field("message", message)
+                .endObject();
+        session.send(out.toString());
+    }
+
+    // {"type":"command","id":"1","command":"glist"}，在命令线程池中执行，不阻塞网络线程
+    private void handleCommand(ClientSession session, WebSocketRequest request) {
+        String command = request.getString("command");
+        if (command == null || command.trim().isEmpty()) {
+            sendError(session, request.getId(), request.getType(), "bad-request", "缺少 command 字段");
+            return;
+        }
+        plugin.getDiagnostics().audit("WebSocket 客户端执行命令: " + command);
+        commands.submit(session, request.getId(), command);
     }
 
     @Override
     public void onError(WebSocket conn, Exception ex) {
-        plugin.getLogger().severe("WebSocket 错误: " + ex.getMessage());
+        plugin.getDiagnostics().severe("WebSocket 错误: " + ex.getMessage());
         if (conn != null) {
-            authenticatedClients.remove(conn);
+            removeClient(conn);
         }
     }
 
     @Override
     public void onStart() {
-        plugin.getLogger().info("WebSocket 服务器启动成功");
+        plugin.getDiagnostics().info("WebSocket 服务器启动成功");
         setConnectionLostTimeout(30);
     }
 
-    // 广播消息到所有已认证客户端
+    // {"type":"replay","since":上次收到的序号}
+    // 补发序号在 (since, 实时起点) 之间的消息，先回复范围，complete 为 false 表示最旧的部分已不在内存中
+    // 每个客户端同时只能有一次补发，上一次还没推送完时回复 busy
+    private void replay(ClientSession session, WebSocketRequest request) {
+        if (session.isReplaying()) {
+            sendError(session, request.getId(), request.getType(), "busy", "上一次补发尚未完成");
+            return;
+        }
+        long since = request.getLong("since", 0L);
+        List<Object> payloads;
+        boolean complete;
+        synchronized (history) {
+            long before = session.getFirstSequence();
+            payloads = history.between(since, before, session.getSubscription(), session.isBinary());
+            long oldest = history.getOldestSequence();
+            complete = since + 1 >= before || (oldest >= 0 && oldest <= since + 1);
+        }
+
+        StringBuilder out = new StringBuilder(128);
+        new JsonWriter(out).beginObject()
+                .field("type", "replay")
+                .field("id", request.getId())
+                .field("since", since)
+                .field("until", session.getFirstSequence() - 1)
+                .field("count", payloads.size())
+                .field("complete", complete)
+                .endObject();
+        session.send(out.toString());
+        session.replay(payloads);
+    }
+
+    // {"type":"subscribe","events":["playerjoin"],"level":"WARNING","servers":["lobby"],"players":["名称或UUID"]}
+    private void subscribe(ClientSession session, WebSocketRequest request) {
+        List<String> events = request.getStrings("events");
+        Subscription subscription = Subscription.compile(events, request.getString("level"),
+                request.getStrings("servers"), request.getStrings("players"));
+        synchronized (history) {
+            session.setSubscription(subscription);
+            rebuildRoutes();
+        }
+
+        StringBuilder out = new StringBuilder(96);
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", "subscribe")
+                .field("id", request.getId())
+                .field("status", "success")
+                .name("events").beginArray();
+        for (String event : events) {
+            if ("*".equals(event) || EventType.fromId(event) != null) {
+                json.value(event);
+            }
+        }
+        json.endArray().endObject();
+        session.send(out.toString());
+    }
+
+    // 重建按事件类型索引的订阅表，调用方持有 history 锁（构造时除外）
+    private void rebuildRoutes() {
+        EventType[] types = EventType.values();
+        ClientSession[][] text = new ClientSession[types.length][];
+        ClientSession[][] player = new ClientSession[types.length][];
+        List<ClientSession> textList = new ArrayList<>();
+        List<ClientSession> playerList = new ArrayList<>();
+
+        for (EventType type : types) {
+            textList.clear();
+            playerList.clear();
+            for (ClientSession session : authenticatedClients) {
+                if (session.getSubscription().wants(type, false)) textList.add(session);
+                if (session.getSubscription().wants(type, true)) playerList.add(session);
+            }
+            text[type.ordinal()] = textList.toArray(new ClientSession[0]);
+            player[type.ordinal()] = playerList.toArray(new ClientSession[0]);
+        }
+        textRoutes = text;
+        playerRoutes = player;
+    }
+
+    // {"type":"search","id":"1","from":毫秒,"to":毫秒,"player":"名称或UUID","events":["playerchat"],"limit":100}
+    private void submitSearch(ClientSession session, WebSocketRequest request) {
+        LogSettings settings = plugin.getSettings();
+        String id = request.getId();
+        int typeMask = 0;
+        for (String event : request.getStrings("events")) {
+            EventType type = EventType.fromId(event);
+            if (type != null) {
+                typeMask |= 1 << type.ordinal();
+            }
+        }
+        int limit = (int) Math.min(request.getLong("limit", settings.getWebapiSearchMaxResults()),
+                settings.getWebapiSearchMaxResults());
+        LogSearch.Query query = new LogSearch.Query(request.getLong("from", 0L),
+                request.getLong("to", Long.MAX_VALUE), request.getString("player"), typeMask, Math.max(1, limit));
+
+        searchExecutor.execute(() -> runSearch(session, id, query,
+                new LogSearch(new File(plugin.getDataFolder(), "logs"), settings.getCharset()),
+                Math.max(1, settings.getWebapiSearchPageSize())));
+    }
+
+    // 按页把查询结果发回客户端，最后一页带 done 和总数
+    private void runSearch(ClientSession session, String id, LogSearch.Query query, LogSearch search, int pageSize) {
+        List<LogSearch.Hit> page = new ArrayList<>(pageSize);
+        int[] pages = {0};
+        try {
+            int total = search.search(query, hit -> {
+                page.add(hit);
+                if (page.size() >= pageSize) {
+                    sendSearchPage(session, id, ++pages[0], page, false, -1);
+                    page.clear();
+                }
+                return session.getConnection().isOpen();
+            });
+            sendSearchPage(session, id, ++pages[0], page, true, total);
+        } catch (Exception e) {
+            plugin.getDiagnostics().warning("日志查询失败: " + e.getMessage());
+            if (session.getConnection().isOpen()) {
+                StringBuilder out = new StringBuilder(128);
+                new JsonWriter(out).beginObject()
+                        .field("type", "search")
+                        .field("id", id)
+                        .field("status", "error")
+                        .field("message", "查询失败")
+                        .endObject();
+                session.send(out.toString());
+            }
+        }
+    }
+
+    private void sendSearchPage(ClientSession session, String id, int pageNumber, List<LogSearch.Hit> hits,
+                                boolean done, int total) {
+        if (!session.getConnection().isOpen()) return;
+
+        StringBuilder out = new StringBuilder(256 + hits.size() * 128);
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", "search")
+                .field("id", id)
+                .field("page", pageNumber)
+                .name("results").beginArray();
+        for (LogSearch.Hit hit : hits) {
+            json.beginObject()
+                    .field("time", hit.getTimestamp())
+                    .field("event", hit.getType().getId())
+                    .field("player", hit.getPlayer())
+                    .field("line", hit.getLine())
+                    .endObject();
+        }
+        json.endArray().field("done", done);
+        if (done) {
+            json.field("total", total);
+        }
+        json.endObject();
+        session.send(out.toString());
+    }
+
+    private void removeClient(WebSocket conn) {
+        TimingWheel.Timeout deadline = pendingClients.remove(conn);
+        if (deadline != null) {
+            deadline.cancel();
+        }
+        ClientSession session = conn.getAttachment();
+        if (session != null && authenticatedClients.remove(session)) {
+            commands.forget(session);
+            synchronized (history) {
+                rebuildRoutes();
+            }
+        }
+    }
+
+    // 按订阅表推送一个事件（写入线程调用）：没有任何客户端或历史环需要时直接返回，不做序列化
+    public void publish(LogEvent event, StringBuilder json, StringBuilder scratch) {
+        EventType type = event.getType();
+        if (event.isLogged()) {
+            route(event, false, json, scratch);
+        }
+        if (type.isPlayerEvent()) {
+            route(event, true, json, scratch);
+        }
+    }
+
+    private void route(LogEvent event, boolean playerMessage, StringBuilder json, StringBuilder scratch) {
+        int index = event.getType().ordinal();
+        boolean keep = history.isEnabled() && historyFilter.matches(event, playerMessage);
+        if (!keep && (playerMessage ? playerRoutes : textRoutes)[index].length == 0) return;
+
+        boolean delivered;
+        synchronized (history) {
+            ClientSession[] candidates = (playerMessage ? playerRoutes : textRoutes)[index];
+            boolean anyJson = false;
+            boolean anyBinary = false;
+            for (int i = 0; i < candidates.length && !(anyJson && anyBinary); i++) {
+                if (candidates[i].getSubscription().matches(event, playerMessage)) {
+                    if (candidates[i].isBinary()) {
+                        anyBinary = true;
+                    } else {
+                        anyJson = true;
+                    }
+                }
+            }
+            delivered = anyJson || anyBinary;
+            if (!keep && !delivered) return;
+
+            long seq = ++sequence;
+            // JSON 只序列化一次供所有 JSON 客户端共享；二进制客户端拿到事件副本，按各自的字典编码
+            ByteBuffer payload = null;
+            if (keep || anyJson) {
+                json.setLength(0);
+                if (playerMessage) {
+                    event.writePlayerJson(json);
+                } else {
+                    event.writePluginJson(json, scratch);
+                }
+                payload = encode(json, seq);
+            }
+            EventRecord record = keep || anyBinary ? EventRecord.of(seq, event, playerMessage) : null;
+            if (keep) {
+                history.add(seq, payload, record);
+            }
+            for (ClientSession session : candidates) {
+                if (session.getSubscription().matches(event, playerMessage)) {
+                    session.enqueue(session.isBinary() ? record : payload);
+                }
+            }
+        }
+        if (delivered) {
+            plugin.getMetrics().recordSocket(System.nanoTime() - event.getNanoTime());
+        }
+    }
+
+    // 广播控制消息到所有已认证客户端，不受订阅条件限制：分配序号后只做一次 UTF-8 编码，各客户端共享编码结果
     public void broadcast(String message) {
-        for (WebSocket conn : authenticatedClients.keySet()) {
-            if (authenticatedClients.get(conn) && conn.isOpen()) {
-                conn.send(message);
+        synchronized (history) {
+            if (authenticatedClients.isEmpty() && !history.isEnabled()) return;
+
+            long seq = ++sequence;
+            ByteBuffer payload = encode(new StringBuilder(message), seq);
+            history.add(seq, payload, null);
+            for (ClientSession session : authenticatedClients) {
+                session.enqueue(payload);
             }
         }
     }
 
+    // 在 JSON 对象开头插入 seq 字段后编码
+    private static ByteBuffer encode(StringBuilder json, long seq) {
+        if (json.length() > 1 && json.charAt(0) == '{') {
+            json.insert(1, json.charAt(1) == '}' ? "\"seq\":" + seq : "\"seq\":" + seq + ",");
+        }
+        return StandardCharsets.UTF_8.encode(CharBuffer.wrap(json));
+    }
+
+    public long getSequence() {
+        synchronized (history) {
+            return sequence;
+        }
+    }
+
+    public int getHistorySize() {
+        synchronized (history) {
+            return history.size();
+        }
+    }
+
+    // 定期推送运行指标；指标是瞬时状态，不分配序号也不进入历史环
+    private void pushMetrics() {
+        if (authenticatedClients.isEmpty()) return;
+        try {
+            StringBuilder json = new StringBuilder(1024);
+            plugin.getMetrics().writeJson(json, LogMetrics.Gauges.collect(plugin));
+            ByteBuffer payload = StandardCharsets.UTF_8.encode(CharBuffer.wrap(json));
+            for (ClientSession session : authenticatedClients) {
+                session.enqueue(payload);
+            }
+        } catch (Exception e) {
+            plugin.getDiagnostics().warning("推送运行指标失败: " + e.getMessage());
+        }
+    }
+
+    private void pumpAll() {
+        for (ClientSession session : authenticatedClients) {
+            session.pump();
+        }
+    }
+
+    public WebSocketStats getStats() {
+        return stats;
+    }
+
+    public boolean isBatching() {
+        return batchWindow > 0;
+    }
+
+    public ConnectionGuard getGuard() {
+        return guard;
+    }
+
+    public int getPendingCount() {
+        return pendingClients.size();
+    }
+
+    public RemoteCommandExecutor getCommands() {
+        return commands;
+    }
+
+    // 获取已认证客户端
+    public Collection<ClientSession> getClientSessions() {
+        return authenticatedClients;
+    }
+
     // 停止服务器
     public void stopServer() {
         try {
             executor.shutdown();
+            searchExecutor.shutdownNow();
+            commands.shutdown();
             // 广播停止消息
-            broadcast("{\"type\":\"bungeelogwebapi\",\"message\":\"stopped\"}");
+            broadcast(BungeeLog.statusJson("stopped"));
             // 关闭所有连接
-            for (WebSocket conn : authenticatedClients.keySet()) {
+            for (ClientSession session : authenticatedClients) {
+                session.pump();
+                session.getConnection().close();
+            }
+            for (WebSocket conn : pendingClients.keySet()) {
                 conn.close();
             }
             super.stop();
         } catch (Exception e) {
-            plugin.getLogger().severe("WebSocket 服务器停止失败: " + e.getMessage());
+            plugin.getDiagnostics().severe("WebSocket 服务器停止失败: " + e.getMessage());
         }
     }
 }
\ No newline at end of file
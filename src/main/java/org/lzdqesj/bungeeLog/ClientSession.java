@@ -0,0 +1,328 @@
+package org.lzdqesj.bungeeLog;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.WebSocketImpl;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
+import org.java_websocket.framing.BinaryFrame;
+import org.java_websocket.framing.TextFrame;
+
+// 单个已认证 WebSocket 客户端的发送通道：自带有界缓冲区，慢客户端不会拖垮整个代理的内存
+// 广播线程只在会话锁内入队；编码、压缩和发送由发送线程在发送锁内完成，不会拖慢持有广播锁的写入线程
+// 认证之后发往该连接的每一帧都经过发送锁：permessage-deflate 的压缩上下文按连接共享，不能由两个线程同时使用
+public class ClientSession {
+
+    // 慢客户端关闭码
+    public static final int CLOSE_SLOW_CONSUMER = 4003;
+    // 单个批量帧的上限
+    private static final int MAX_BATCH_MESSAGES = 256;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+
+    // 缓冲区超过高水位时的处理策略
+    public enum SlowClientPolicy {
+        DROP_OLDEST,    // 丢弃该客户端最旧的消息
+        COALESCE,       // 丢弃的消息合并成一条 dropped 通知
+        DISCONNECT;     // 直接断开该客户端
+
+        public static SlowClientPolicy parse(String value) {
+            if (value != null) {
+                for (SlowClientPolicy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(value.trim().replace('-', '_'))) {
+                        return policy;
+                    }
+                }
+            }
+            return DROP_OLDEST;
+        }
+    }
+
+    private final WebSocket conn;
+    private final int highWaterMark;
+    private final int socketWindow;
+    private final SlowClientPolicy policy;
+    // JSON 客户端只有已编码的 ByteBuffer；二进制客户端的事件是 EventRecord，发送时才编码
+    private final ArrayDeque<Object> outbound = new ArrayDeque<>();
+    // 正在补发的历史消息，同一时间只允许一次补发；和实时消息一样受底层连接窗口限制，先于缓冲区发送
+    private ArrayDeque<Object> replaying;
+    // 从缓冲区取出、正在组帧的消息，只在发送锁内访问
+    private final ArrayDeque<Object> sending = new ArrayDeque<>();
+    private final Object sendLock = new Object();
+    // 认证回复发出之前不推送，只由发送锁保护
+    private boolean started;
+    private final Executor sender;
+    private final AtomicBoolean pumpScheduled = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private long coalesced;
+    private boolean closed;
+    // 该客户端实时推送的第一条消息序号，更早的只能通过补发获得
+    private final long firstSequence;
+    // 订阅条件，由网络线程替换，广播线程读取
+    private volatile Subscription subscription = Subscription.ALL;
+    // 批量模式下事件只入队，由定时推送按窗口合并成 JSON 数组帧
+    private final boolean batching;
+    private final WebSocketStats stats;
+    // 二进制协议的编码器，JSON 客户端为 null；在发送时编码，字典与客户端实际收到的帧保持一致
+    private final BinaryProtocol.Encoder encoder;
+
+    public ClientSession(WebSocket conn, int highWaterMark, int socketWindow, SlowClientPolicy policy,
+                         long firstSequence, boolean batching, WebSocketStats stats, boolean binary, Executor sender) {
+        this.conn = conn;
+        this.sender = sender;
+        this.encoder = binary ? new BinaryProtocol.Encoder() : null;
+        this.firstSequence = firstSequence;
+        this.batching = batching;
+        this.stats = stats;
+        this.highWaterMark = Math.max(1, highWaterMark);
+        this.socketWindow = Math.max(1, socketWindow);
+        this.policy = policy;
+    }
+
+    // 放入一条已编码的 JSON 消息或二进制客户端的事件副本，然后唤醒发送线程推送到底层连接
+    public void enqueue(Object payload) {
+        synchronized (this) {
+            if (closed) return;
+
+            if (outbound.size() >= highWaterMark) {
+                switch (policy) {
+                    case DISCONNECT:
+                        closed = true;
+                        dropped.addAndGet(outbound.size() + 1);
+                        outbound.clear();
+                        conn.close(CLOSE_SLOW_CONSUMER, "Slow consumer");
+                        return;
+
+                    case COALESCE:
+                        outbound.pollFirst();
+                        coalesced++;
+                        dropped.incrementAndGet();
+                        break;
+
+                    default:
+                        outbound.pollFirst();
+                        dropped.incrementAndGet();
+                        break;
+                }
+            }
+
+            outbound.addLast(payload);
+            if (batching && outbound.size() < MAX_BATCH_MESSAGES) return;
+        }
+        schedulePump();
+    }
+
+    // 在发送线程上安排一次推送，已经安排过的不重复提交
+    private void schedulePump() {
+        if (!pumpScheduled.compareAndSet(false, true)) return;
+        try {
+            sender.execute(() -> {
+                pumpScheduled.set(false);
+                pump();
+            });
+        } catch (RejectedExecutionException e) {
+            // 服务器正在停止，stopServer 会直接推送剩余的消息
+            pumpScheduled.set(false);
+        }
+    }
+
+    // 先发出认证回复等开场消息，再开始推送认证期间已入队的消息
+    public void start(String... greeting) {
+        synchronized (sendLock) {
+            try {
+                for (String text : greeting) {
+                    conn.send(text);
+                }
+            } catch (WebsocketNotConnectedException e) {
+                // 连接已断开，onClose 会负责清理
+            }
+            started = true;
+        }
+        schedulePump();
+    }
+
+    // 直接回复一条文本消息（请求结果、错误、查询结果和命令输出），不进入推送缓冲区，与推送共用发送锁
+    public void send(String text) {
+        synchronized (sendLock) {
+            if (!conn.isOpen()) return;
+            try {
+                conn.send(text);
+            } catch (WebsocketNotConnectedException e) {
+                // 连接已断开，onClose 会负责清理
+            }
+        }
+    }
+
+    // 在底层发送队列低于窗口时把缓冲区中的消息交给连接；会话锁只用来取出消息，组帧和发送都在锁外
+    public void pump() {
+        synchronized (sendLock) {
+            if (!started) return;
+            try {
+                while (conn.isOpen() && socketBacklog() < socketWindow) {
+                    long notice;
+                    synchronized (this) {
+                        if (closed) return;
+                        notice = coalesced;
+                        coalesced = 0;
+                        if (notice == 0) {
+                            take();
+                        }
+                    }
+                    if (notice > 0) {
+                        conn.send("{\"type\":\"dropped\",\"count\":" + notice + "}");
+                        continue;
+                    }
+
+                    if (sending.isEmpty()) break;
+                    sendNext(sending);
+                }
+            } catch (WebsocketNotConnectedException e) {
+                // 连接已断开，onClose 会负责清理
+            }
+        }
+    }
+
+    // 取出下一帧需要的消息，补发的优先；调用方同时持有发送锁和会话锁
+    private void take() {
+        int wanted = batching ? MAX_BATCH_MESSAGES : 1;
+        while (sending.size() < wanted) {
+            if (replaying != null && replaying.isEmpty()) {
+                replaying = null;
+            }
+            ArrayDeque<Object> queue = replaying != null ? replaying : outbound;
+            if (queue.isEmpty()) return;
+            sending.addLast(queue.pollFirst());
+        }
+    }
+
+    // 发送队首的一帧：二进制事件按批编码，JSON 在批量模式下合并成数组
+    private void sendNext(ArrayDeque<Object> queue) {
+        if (queue.peekFirst() instanceof EventRecord) {
+            sendBinary(queue);
+        } else if (batching) {
+            sendBatch(queue);
+        } else {
+            // 共享的编码结果通过 duplicate 独立读取，压缩扩展修改的也只是副本
+            sendText(((ByteBuffer) queue.pollFirst()).duplicate());
+            sent.incrementAndGet();
+        }
+    }
+
+    // 补发历史消息：数量已受历史环限制，不占用实时推送的缓冲区，但同样按底层连接的窗口逐步推送
+    public void replay(List<Object> payloads) {
+        synchronized (this) {
+            if (closed || payloads.isEmpty()) return;
+
+            replaying = new ArrayDeque<>(payloads);
+        }
+        schedulePump();
+    }
+
+    // 上一次补发是否还有未推送的消息
+    public synchronized boolean isReplaying() {
+        return replaying != null && !replaying.isEmpty();
+    }
+
+    // 把队首连续的若干条 JSON 消息拼成一个数组帧
+    private void sendBatch(ArrayDeque<Object> queue) {
+        int count = 0;
+        int bytes = 1;
+        for (Object item : queue) {
+            if (!(item instanceof ByteBuffer)) break;
+            ByteBuffer payload = (ByteBuffer) item;
+            if (count > 0 && (count >= MAX_BATCH_MESSAGES || bytes + payload.remaining() + 1 > MAX_BATCH_BYTES)) {
+                break;
+            }
+            bytes += payload.remaining() + 1;
+            count++;
+        }
+
+        ByteBuffer batch = ByteBuffer.allocate(bytes);
+        batch.put((byte) '[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                batch.put((byte) ',');
+            }
+            batch.put(((ByteBuffer) queue.pollFirst()).duplicate());
+        }
+        batch.put((byte) ']');
+        batch.flip();
+
+        sendText(batch);
+        sent.addAndGet(count);
+        stats.recordBatch(count);
+    }
+
+    // 把队首连续的事件编码进一个二进制帧，非批量模式下每帧一条
+    private void sendBinary(ArrayDeque<Object> queue) {
+        int limit = batching ? MAX_BATCH_MESSAGES : 1;
+        int count = 0;
+        encoder.begin();
+        while (count < limit && queue.peekFirst() instanceof EventRecord && encoder.size() < MAX_BATCH_BYTES) {
+            encoder.write((EventRecord) queue.pollFirst());
+            count++;
+        }
+
+        BinaryFrame frame = new BinaryFrame();
+        frame.setPayload(encoder.finish());
+        frame.setFin(true);
+        conn.sendFrame(frame);
+        sent.addAndGet(count);
+        if (batching) {
+            stats.recordBatch(count);
+        }
+    }
+
+    private void sendText(ByteBuffer payload) {
+        TextFrame frame = new TextFrame();
+        frame.setPayload(payload);
+        frame.setFin(true);
+        conn.sendFrame(frame);
+    }
+
+    // 底层连接中尚未写出的帧数量
+    private int socketBacklog() {
+        if (conn instanceof WebSocketImpl) {
+            return ((WebSocketImpl) conn).outQueue.size();
+        }
+        return conn.hasBufferedData() ? socketWindow : 0;
+    }
+
+    public synchronized int getBacklog() {
+        return outbound.size() + (replaying != null ? replaying.size() : 0);
+    }
+
+    public boolean isBinary() {
+        return encoder != null;
+    }
+
+    public Subscription getSubscription() {
+        return subscription;
+    }
+
+    public void setSubscription(Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    public long getFirstSequence() {
+        return firstSequence;
+    }
+
+    public WebSocket getConnection() {
+        return conn;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+}
@@ -0,0 +1,211 @@
+package org.lzdqesj.bungeeLog;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.java_websocket.WebSocket;
+
+// WebSocket 连接的准入控制：每个 IP 的连接数上限、全局等待认证的连接上限，以及认证失败后按 IP 指数退避
+// 退避期间该 IP 的新连接和认证请求直接拒绝，不再比对密码；长时间没有再失败的 IP 会被遗忘
+public class ConnectionGuard {
+
+    // 拒绝原因和对应的关闭码
+    public enum Rejection {
+        TOO_MANY_CONNECTIONS(4004, "Too many connections"),
+        BUSY(4005, "Too many pending handshakes"),
+        BACKOFF(4006, "Authentication backoff");
+
+        private final int code;
+        private final String reason;
+
+        Rejection(int code, String reason) {
+            this.code = code;
+            this.reason = reason;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    // 最多同时记录的认证失败来源数，超过后先清理过期记录，仍然满时不再记录新的来源
+    private static final int MAX_OFFENDERS = 10000;
+
+    private final int maxPending;
+    private final int maxPerAddress;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+
+    // 已准入连接的来源地址，断开时据此归还计数
+    private final Map<WebSocket, InetAddress> admitted = new ConcurrentHashMap<>();
+    private final Map<InetAddress, Integer> connections = new ConcurrentHashMap<>();
+    private final Map<InetAddress, Offender> offenders = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedPerAddress = new AtomicLong();
+    private final AtomicLong rejectedBusy = new AtomicLong();
+    private final AtomicLong rejectedBackoff = new AtomicLong();
+    private final AtomicLong authFailures = new AtomicLong();
+    private final AtomicLong authTimeouts = new AtomicLong();
+
+    public ConnectionGuard(LogSettings settings) {
+        this.maxPending = settings.getWebapiMaxPending();
+        this.maxPerAddress = settings.getWebapiMaxConnectionsPerIp();
+        this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, settings.getWebapiAuthBackoff()));
+        this.maxBackoffNanos = Math.max(backoffNanos,
+                TimeUnit.MILLISECONDS.toNanos(settings.getWebapiAuthBackoffMax()));
+    }
+
+    // 新连接打开时调用，返回 null 表示准入；pending 为当前等待认证的连接数
+    public Rejection admit(WebSocket conn, int pending) {
+        InetAddress address = address(conn);
+        if (address != null && isBlocked(address)) {
+            rejectedBackoff.incrementAndGet();
+            return Rejection.BACKOFF;
+        }
+        if (maxPending > 0 && pending >= maxPending) {
+            rejectedBusy.incrementAndGet();
+            return Rejection.BUSY;
+        }
+        if (address == null) return null;
+
+        boolean[] over = new boolean[1];
+        connections.compute(address, (key, count) -> {
+            int current = count != null ? count : 0;
+            if (maxPerAddress > 0 && current >= maxPerAddress) {
+                over[0] = true;
+                return count;
+            }
+            return current + 1;
+        });
+        if (over[0]) {
+            rejectedPerAddress.incrementAndGet();
+            return Rejection.TOO_MANY_CONNECTIONS;
+        }
+        admitted.put(conn, address);
+        return null;
+    }
+
+    // 连接关闭时调用，返回该连接是否曾被准入
+    public boolean release(WebSocket conn) {
+        InetAddress address = admitted.remove(conn);
+        if (address == null) return false;
+        connections.computeIfPresent(address, (key, count) -> count > 1 ? count - 1 : null);
+        return true;
+    }
+
+    // 认证请求到达时调用：该来源仍在退避期内则直接拒绝
+    public boolean checkAuthAllowed(WebSocket conn) {
+        InetAddress address = admitted.get(conn);
+        if (address != null && isBlocked(address)) {
+            rejectedBackoff.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void authSucceeded(WebSocket conn) {
+        InetAddress address = admitted.get(conn);
+        if (address != null) {
+            offenders.remove(address);
+        }
+    }
+
+    // 认证失败：退避时间从 backoff 开始每次翻倍，上限 maxBackoff；距上次失败超过 maxBackoff 后重新计数
+    public void authFailed(WebSocket conn) {
+        authFailures.incrementAndGet();
+        InetAddress address = admitted.get(conn);
+        if (address == null || backoffNanos == 0) return;
+
+        long now = System.nanoTime();
+        if (offenders.size() >= MAX_OFFENDERS && !offenders.containsKey(address)) {
+            sweep();
+            if (offenders.size() >= MAX_OFFENDERS) return;
+        }
+        offenders.compute(address, (key, offender) -> {
+            if (offender == null || now - offender.lastFailure > maxBackoffNanos) {
+                offender = new Offender();
+            }
+            offender.failures++;
+            long delay = offender.failures > 30 ? maxBackoffNanos
+                    : Math.min(maxBackoffNanos, backoffNanos << (offender.failures - 1));
+            offender.lastFailure = now;
+            offender.blockedUntil = now + delay;
+            return offender;
+        });
+    }
+
+    public void authTimedOut() {
+        authTimeouts.incrementAndGet();
+    }
+
+    // 清理退避已结束且长时间没有再失败的来源，由定时任务调用
+    public void sweep() {
+        long now = System.nanoTime();
+        Iterator<Offender> iterator = offenders.values().iterator();
+        while (iterator.hasNext()) {
+            Offender offender = iterator.next();
+            if (now - offender.blockedUntil > 0 && now - offender.lastFailure > maxBackoffNanos) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean isBlocked(InetAddress address) {
+        Offender offender = offenders.get(address);
+        return offender != null && offender.blockedUntil - System.nanoTime() > 0;
+    }
+
+    private static InetAddress address(WebSocket conn) {
+        InetSocketAddress remote = conn.getRemoteSocketAddress();
+        return remote != null ? remote.getAddress() : null;
+    }
+
+    public long getRejectedPerAddress() {
+        return rejectedPerAddress.get();
+    }
+
+    public long getRejectedBusy() {
+        return rejectedBusy.get();
+    }
+
+    public long getRejectedBackoff() {
+        return rejectedBackoff.get();
+    }
+
+    public long getAuthFailures() {
+        return authFailures.get();
+    }
+
+    public long getAuthTimeouts() {
+        return authTimeouts.get();
+    }
+
+    public int getTrackedAddresses() {
+        return connections.size();
+    }
+
+    public int getBlockedAddresses() {
+        int blocked = 0;
+        long now = System.nanoTime();
+        for (Offender offender : offenders.values()) {
+            if (offender.blockedUntil - now > 0) blocked++;
+        }
+        return blocked;
+    }
+
+    // 单个来源的认证失败记录，只在 offenders.compute 内修改
+    private static final class Offender {
+        int failures;
+        volatile long lastFailure;
+        volatile long blockedUntil;
+    }
+}
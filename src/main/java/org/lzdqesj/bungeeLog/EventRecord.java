@@ -0,0 +1,96 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.UUID;
+
+// 已分配序号的事件的不可变副本：环形缓冲区的槽位会被复用，需要跨线程保留的事件（历史环、二进制客户端的发送队列）保存这个副本
+// 也是二进制协议解码后的结果
+public final class EventRecord {
+
+    private final long sequence;
+    private final long timestamp;
+    private final EventType type;
+    // true 表示玩家事件消息，false 表示日志行消息，与订阅的区分一致
+    private final boolean playerMessage;
+    private final String level;
+    private final String playerName;
+    private final UUID playerUuid;
+    private final String address;
+    private final String server;
+    private final String otherServer;
+    private final String text;
+
+    public EventRecord(long sequence, long timestamp, EventType type, boolean playerMessage, String level,
+                       String playerName, UUID playerUuid, String address, String server, String otherServer,
+                       String text) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.playerMessage = playerMessage;
+        this.level = level;
+        this.playerName = playerName;
+        this.playerUuid = playerUuid;
+        this.address = address;
+        this.server = server;
+        this.otherServer = otherServer;
+        this.text = text;
+    }
+
+    public static EventRecord of(long sequence, LogEvent event, boolean playerMessage) {
+        return new EventRecord(sequence, event.getTimestamp(), event.getType(), playerMessage, event.getLevel(),
+                event.getPlayerName(), event.getPlayerUuid(), event.getAddress(), event.getServer(),
+                event.getOtherServer(), event.getText());
+    }
+
+    // 与日志文件相同的可读文本
+    public void appendText(StringBuilder out) {
+        LogEvent.appendText(out, type, playerName, address, server, text);
+    }
+
+    public boolean matches(Subscription subscription) {
+        return subscription.matches(type, playerMessage, level, server, playerName, playerUuid);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public boolean isPlayerMessage() {
+        return playerMessage;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getOtherServer() {
+        return otherServer;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,225 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+// 高频事件（Ping、刷屏聊天等）的去重、采样和令牌桶限流，在 emit 抢占环形缓冲区槽位之前判断
+// 被拒绝的事件不占槽位也不格式化，只累加计数；被抑制的数量由 sweep 定期汇总成一条插件日志
+public class EventThrottle {
+
+    private final BungeeLog plugin;
+    private final ThrottleSettings settings;
+    // 按 EventType 序号索引，null 表示该类型不限流
+    private final TokenBucket[] buckets;
+    private final long[] dedupWindows;
+
+    // 上次汇总以来被限流和采样跳过的条数
+    private final AtomicLongArray rateLimited;
+    private final AtomicLongArray sampledOut;
+    private final Map<Source, Window> windows = new ConcurrentHashMap<>();
+
+    // 累计计数，供状态命令查看
+    private final AtomicLong totalRateLimited = new AtomicLong();
+    private final AtomicLong totalSampledOut = new AtomicLong();
+    private final AtomicLong totalDeduplicated = new AtomicLong();
+
+    public EventThrottle(BungeeLog plugin, ThrottleSettings settings) {
+        this.plugin = plugin;
+        this.settings = settings;
+
+        EventType[] types = EventType.values();
+        this.buckets = new TokenBucket[types.length];
+        this.dedupWindows = new long[types.length];
+        for (EventType type : types) {
+            ThrottleSettings.Rule rule = settings.getRule(type);
+            if (rule == null) continue;
+            if (rule.getRate() > 0) {
+                buckets[type.ordinal()] = new TokenBucket(rule.getRate(), rule.getBurst());
+            }
+            dedupWindows[type.ordinal()] = TimeUnit.MILLISECONDS.toNanos(rule.getDedupWindow());
+        }
+        this.rateLimited = new AtomicLongArray(types.length);
+        this.sampledOut = new AtomicLongArray(types.length);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    // 依次做去重、采样和限流，返回 false 表示丢弃该事件
+    // 没有规则的类型只有一次数组读取；去重需要来源 IP，未传入时从玩家连接取
+    // 玩家事件的去重键还包含玩家 UUID，同一出口 IP 后的不同玩家（NAT、TCPShield 等前置代理）互不影响
+    public boolean admit(EventType type, ProxiedPlayer player, String address, String text) {
+        ThrottleSettings.Rule rule = settings.getRule(type);
+        if (rule == null) return true;
+
+        int index = type.ordinal();
+        long now = System.nanoTime();
+
+        long window = dedupWindows[index];
+        if (window > 0) {
+            String source = address;
+            if (source == null && player != null && player.getAddress() != null) {
+                source = player.getAddress().getAddress().getHostAddress();
+            }
+            if (source != null && !admitSource(new Source(type, source, player, text), window, now)) {
+                totalDeduplicated.incrementAndGet();
+                return false;
+            }
+        }
+
+        if (rule.getSample() < 1D && ThreadLocalRandom.current().nextDouble() >= rule.getSample()) {
+            sampledOut.incrementAndGet(index);
+            totalSampledOut.incrementAndGet();
+            return false;
+        }
+
+        TokenBucket bucket = buckets[index];
+        if (bucket != null && !bucket.tryAcquire(now)) {
+            rateLimited.incrementAndGet(index);
+            totalRateLimited.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // 同一来源的相同事件在窗口内只放行第一条，窗口过期后放行下一条并先补上被抑制数量的汇总
+    private boolean admitSource(Source source, long window, long now) {
+        Window state = windows.get(source);
+        if (state == null) {
+            // 跟踪的来源过多时不再新增，宁可放行也不让内存随扫描器的 IP 数量增长
+            if (windows.size() < settings.getDedupMaxSources()) {
+                windows.putIfAbsent(source, new Window(now));
+            }
+            return true;
+        }
+
+        int suppressed;
+        synchronized (state) {
+            if (now - state.start < window) {
+                state.suppressed++;
+                return false;
+            }
+            suppressed = state.suppressed;
+            state.suppressed = 0;
+            state.start = now;
+        }
+        if (suppressed > 0) {
+            summarizeSource(source, suppressed);
+        }
+        return true;
+    }
+
+    // 由定时任务调用：汇总限流和采样的数量，清理过期的去重窗口；all 为 true 时不论窗口是否过期全部汇总
+    public void sweep(boolean all) {
+        EventType[] types = EventType.values();
+        for (EventType type : types) {
+            long limited = rateLimited.getAndSet(type.ordinal(), 0);
+            long sampled = sampledOut.getAndSet(type.ordinal(), 0);
+            if (limited > 0 || sampled > 0) {
+                StringBuilder message = new StringBuilder(64).append("[限流] ").append(type.getId()).append(':');
+                if (limited > 0) {
+                    message.append(" 超出速率丢弃 ").append(limited).append(" 条");
+                }
+                if (sampled > 0) {
+                    message.append(" 采样跳过 ").append(sampled).append(" 条");
+                }
+                plugin.writeSummary(message.toString());
+            }
+        }
+
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Source, Window>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Source, Window> entry = it.next();
+            Window state = entry.getValue();
+            int suppressed;
+            synchronized (state) {
+                if (!all && now - state.start < dedupWindows[entry.getKey().type.ordinal()]) continue;
+                suppressed = state.suppressed;
+                state.suppressed = 0;
+            }
+            it.remove();
+            if (suppressed > 0) {
+                summarizeSource(entry.getKey(), suppressed);
+            }
+        }
+    }
+
+    private void summarizeSource(Source source, int suppressed) {
+        String from = source.playerName != null ? source.playerName + " (" + source.address + ")" : source.address;
+        plugin.writeSummary("[限流] " + source.type.getId() + ": 已抑制来自 " + from
+                + " 的 " + suppressed + " 条相似日志");
+    }
+
+    public long getRateLimitedCount() {
+        return totalRateLimited.get();
+    }
+
+    public long getSampledOutCount() {
+        return totalSampledOut.get();
+    }
+
+    public long getDeduplicatedCount() {
+        return totalDeduplicated.get();
+    }
+
+    public int getTrackedSources() {
+        return windows.size();
+    }
+
+    // 去重的键：事件类型、来源 IP、玩家 UUID 和消息内容（Ping 等没有玩家和内容的事件只按 IP）
+    // 玩家名只用于汇总消息，不参与比较
+    private static final class Source {
+
+        final EventType type;
+        final String address;
+        final UUID player;
+        final String playerName;
+        final String text;
+        private final int hash;
+
+        Source(EventType type, String address, ProxiedPlayer player, String text) {
+            this.type = type;
+            this.address = address;
+            this.player = player != null ? player.getUniqueId() : null;
+            this.playerName = player != null ? player.getName() : null;
+            this.text = text;
+            this.hash = ((type.hashCode() * 31 + address.hashCode()) * 31
+                    + (this.player != null ? this.player.hashCode() : 0)) * 31 + (text != null ? text.hashCode() : 0);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Source)) return false;
+            Source other = (Source) o;
+            return type == other.type && address.equals(other.address)
+                    && (player != null ? player.equals(other.player) : other.player == null)
+                    && (text != null ? text.equals(other.text) : other.text == null);
+        }
+    }
+
+    private static final class Window {
+
+        long start;
+        int suppressed;
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
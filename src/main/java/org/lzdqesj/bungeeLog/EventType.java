@@ -0,0 +1,42 @@
+package org.lzdqesj.bungeeLog;
+
+// 事件类型，id 即 WebSocket 消息中的 type 字段
+public enum EventType {
+
+    PLUGIN("plugin", false),
+    PLAYER_JOIN("playerjoin", true),
+    PLAYER_QUIT("playerquit", true),
+    SERVER_CONNECT("serverconnect", false),
+    PLAYER_GOTO_SERVER("playergotoserver", true),
+    PLAYER_LEAVE_SERVER("playerleaveserver", true),
+    PLAYER_KICK("playerkick", false),
+    COMMAND("playercommand", false),
+    CHAT("playerchat", false),
+    PING("ping", false);
+
+    private final String id;
+    // 是否作为独立的玩家事件推送到 WebSocket
+    private final boolean playerEvent;
+
+    EventType(String id, boolean playerEvent) {
+        this.id = id;
+        this.playerEvent = playerEvent;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isPlayerEvent() {
+        return playerEvent;
+    }
+
+    public static EventType fromId(String id) {
+        for (EventType type : values()) {
+            if (type.id.equalsIgnoreCase(id)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,358 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.IOException;
+
+// 流式 JSON 读取器：直接在输入字符串上逐个读取记号，不构建中间对象树，与 JsonWriter 对应
+// 只接受标准 JSON（不允许注释、单引号和多余的逗号），格式错误时抛出带位置的 IOException
+public class JsonReader {
+
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int MAX_DEPTH = 16;
+
+    private final String in;
+    private int pos;
+    // 每一层容器是否为对象、是否还没有读到元素，用于校验逗号
+    private final boolean[] object = new boolean[MAX_DEPTH];
+    private final boolean[] empty = new boolean[MAX_DEPTH];
+    private int depth = -1;
+    // 对象中刚读完字段名，下一个记号是值
+    private boolean afterName;
+    // 顶层值已经读完
+    private boolean done;
+    // peek 的结果，读取后清空；逗号和冒号在 peek 时已经跳过
+    private Token peeked;
+
+    public JsonReader(String in) {
+        this.in = in;
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) return peeked;
+
+        skipWhitespace();
+        if (depth < 0) {
+            if (done) {
+                if (pos < in.length()) throw error("多余的内容");
+                return peeked = Token.END_DOCUMENT;
+            }
+            return peeked = valueToken();
+        }
+        if (afterName) {
+            return peeked = valueToken();
+        }
+
+        char c = current();
+        if (c == (object[depth] ? '}' : ']')) {
+            return peeked = object[depth] ? Token.END_OBJECT : Token.END_ARRAY;
+        }
+        if (!empty[depth]) {
+            if (c != ',') throw error("需要逗号");
+            pos++;
+            skipWhitespace();
+        }
+        if (object[depth]) {
+            if (current() != '"') throw error("需要字段名");
+            return peeked = Token.NAME;
+        }
+        return peeked = valueToken();
+    }
+
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(true);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        pop();
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(false);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        pop();
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        String name = readString();
+        skipWhitespace();
+        if (current() != ':') throw error("需要冒号");
+        pos++;
+        afterName = true;
+        return name;
+    }
+
+    public String nextString() throws IOException {
+        expect(Token.STRING);
+        String value = readString();
+        afterValue();
+        return value;
+    }
+
+    // 数字的原始文本，调用方按需要解析
+    public String nextNumber() throws IOException {
+        expect(Token.NUMBER);
+        String value = readNumber();
+        afterValue();
+        return value;
+    }
+
+    public long nextLong() throws IOException {
+        String text = nextNumber();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            double value = Double.parseDouble(text);
+            if (value != Math.rint(value) || Math.abs(value) >= 0x1p63) {
+                throw error("不是整数: " + text);
+            }
+            return (long) value;
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        boolean value = in.charAt(pos) == 't';
+        literal(value ? "true" : "false");
+        afterValue();
+        return value;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        literal("null");
+        afterValue();
+    }
+
+    // 跳过下一个值（包括嵌套的对象和数组）
+    public void skipValue() throws IOException {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case STRING:
+                    nextString();
+                    break;
+                case NUMBER:
+                    nextNumber();
+                    break;
+                case BOOLEAN:
+                    nextBoolean();
+                    break;
+                case NULL:
+                    nextNull();
+                    break;
+                default:
+                    throw error("输入意外结束");
+            }
+        } while (nesting > 0);
+    }
+
+    // 确认顶层值之后只有空白
+    public void endDocument() throws IOException {
+        expect(Token.END_DOCUMENT);
+    }
+
+    private void expect(Token token) throws IOException {
+        Token actual = peek();
+        if (actual != token) {
+            throw error("需要 " + token + "，实际为 " + actual);
+        }
+        peeked = null;
+    }
+
+    private void push(boolean isObject) throws IOException {
+        if (depth + 1 >= MAX_DEPTH) throw error("嵌套过深");
+        pos++;
+        depth++;
+        object[depth] = isObject;
+        empty[depth] = true;
+        afterName = false;
+    }
+
+    private void pop() {
+        pos++;
+        depth--;
+        afterValue();
+    }
+
+    private void afterValue() {
+        afterName = false;
+        if (depth >= 0) {
+            empty[depth] = false;
+        } else {
+            done = true;
+        }
+    }
+
+    private Token valueToken() throws IOException {
+        char c = current();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                return Token.BOOLEAN;
+            case 'n':
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw error("无法识别的字符 '" + c + "'");
+        }
+    }
+
+    // 没有转义时直接截取子串，不分配缓冲区
+    private String readString() throws IOException {
+        int start = ++pos;
+        StringBuilder buffer = null;
+        while (pos < in.length()) {
+            char c = in.charAt(pos);
+            if (c == '"') {
+                String value = buffer == null
+                        ? in.substring(start, pos)
+                        : buffer.append(in, start, pos).toString();
+                pos++;
+                return value;
+            }
+            if (c < 0x20) {
+                throw error("字符串中有未转义的控制字符");
+            }
+            if (c == '\\') {
+                if (buffer == null) {
+                    buffer = new StringBuilder(pos - start + 16);
+                }
+                buffer.append(in, start, pos);
+                buffer.append(readEscape());
+                start = pos;
+                continue;
+            }
+            pos++;
+        }
+        throw error("字符串没有结束");
+    }
+
+    private char readEscape() throws IOException {
+        pos++;
+        if (pos >= in.length()) throw error("字符串没有结束");
+        char c = in.charAt(pos++);
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                if (pos + 4 > in.length()) throw error("转义不完整");
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(in.charAt(pos++), 16);
+                    if (digit < 0) throw error("无效的 \\u 转义");
+                    value = value << 4 | digit;
+                }
+                return (char) value;
+            default:
+                throw error("无效的转义 \\" + c);
+        }
+    }
+
+    // -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+    private String readNumber() throws IOException {
+        int start = pos;
+        if (peekChar() == '-') pos++;
+        if (peekChar() == '0') {
+            pos++;
+        } else if (!digits()) {
+            throw error("无效的数字");
+        }
+        if (peekChar() == '.') {
+            pos++;
+            if (!digits()) throw error("无效的数字");
+        }
+        if (peekChar() == 'e' || peekChar() == 'E') {
+            pos++;
+            if (peekChar() == '+' || peekChar() == '-') pos++;
+            if (!digits()) throw error("无效的数字");
+        }
+        return in.substring(start, pos);
+    }
+
+    private boolean digits() {
+        int start = pos;
+        while (pos < in.length() && in.charAt(pos) >= '0' && in.charAt(pos) <= '9') {
+            pos++;
+        }
+        return pos > start;
+    }
+
+    private void literal(String expected) throws IOException {
+        if (!in.startsWith(expected, pos)) throw error("无法识别的值");
+        pos += expected.length();
+    }
+
+    private char peekChar() {
+        return pos < in.length() ? in.charAt(pos) : '\0';
+    }
+
+    private char current() throws IOException {
+        if (pos >= in.length()) throw error("输入意外结束");
+        return in.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < in.length()) {
+            char c = in.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') break;
+            pos++;
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + "（位置 " + pos + "）");
+    }
+}
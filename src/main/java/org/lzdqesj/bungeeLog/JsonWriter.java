@@ -0,0 +1,169 @@
+package org.lzdqesj.bungeeLog;
+
+// 流式 JSON 写入器：直接追加到调用方提供的缓冲区，字符串转义一次遍历完成
+public class JsonWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int MAX_DEPTH = 16;
+
+    private final StringBuilder out;
+    // 每一层容器是否还没有写入元素，用于决定是否补逗号
+    private final boolean[] empty = new boolean[MAX_DEPTH];
+    private int depth = -1;
+    private boolean afterName;
+
+    public JsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() {
+        return open('{');
+    }
+
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() {
+        return open('[');
+    }
+
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) {
+        separator();
+        out.append('"');
+        escape(out, name);
+        out.append("\":");
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            out.append("null");
+        } else {
+            out.append('"');
+            escape(out, value);
+            out.append('"');
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separator();
+        out.append(value);
+        return this;
+    }
+
+    // 写入一段已经是合法 JSON 的内容
+    public JsonWriter raw(CharSequence json) {
+        separator();
+        out.append(json);
+        return this;
+    }
+
+    // 写入字符串值，内容由调用方的缓冲区提供，避免先拼成 String
+    public JsonWriter value(CharSequence value) {
+        separator();
+        out.append('"');
+        escape(out, value);
+        out.append('"');
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    private JsonWriter open(char c) {
+        separator();
+        out.append(c);
+        empty[++depth] = true;
+        return this;
+    }
+
+    private JsonWriter close(char c) {
+        out.append(c);
+        depth--;
+        return this;
+    }
+
+    private void separator() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth >= 0) {
+            if (!empty[depth]) {
+                out.append(',');
+            }
+            empty[depth] = false;
+        }
+    }
+
+    // 一次遍历完成 JSON 字符串转义
+    public static void escape(StringBuilder out, CharSequence s) {
+        if (s == null) return;
+        int length = s.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') continue;
+
+            out.append(s, start, i);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+        out.append(s, start, length);
+    }
+
+    public static String escape(String s) {
+        if (s == null) return "";
+        StringBuilder out = new StringBuilder(s.length() + 16);
+        escape(out, s);
+        return out.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 无锁的对数-线性延迟直方图（与 HdrHistogram 相同的分桶方式）：每个 2 的幂区间再均分 16 个子桶，相对误差约 6%
+// 记录只有一次数组原子自增；读取时复制一份计数后计算分位数，不阻塞记录方
+public class LatencyHistogram {
+
+    // 每个 2 的幂区间内的子桶数 = 2^PRECISION_BITS
+    private static final int PRECISION_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+    // 最大可记录约 2^41 纳秒（约 36 分钟），更大的值计入最后一个桶
+    private static final int MAX_MAGNITUDE = 40;
+    private static final long MAX_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0L, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 只在出现新的最大值时重试
+        }
+    }
+
+    // 小于 2 * SUB_BUCKETS 的值每个值一个桶，之后按最高位所在的区间和其后 PRECISION_BITS 位定位
+    private static int index(long value) {
+        if (value < SUB_BUCKETS * 2) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - PRECISION_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // 桶内的最大值，报告分位数时偏保守
+    private static long highestEquivalent(int index) {
+        if (index < SUB_BUCKETS * 2) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.get(), max.get());
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    // 某一时刻的计数副本
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        // quantile 取 0 到 1，没有数据时返回 0
+        public long percentile(double quantile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalent(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getMean() {
+            return count > 0 ? sum / count : 0;
+        }
+    }
+}
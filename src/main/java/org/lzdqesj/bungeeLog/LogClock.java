@@ -0,0 +1,41 @@
+package org.lzdqesj.bungeeLog;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+// 缓存的时间戳：同一秒内的日志复用同一个格式化结果，只在秒数变化时重新格式化
+public class LogClock {
+
+    private final String pattern;
+    private volatile Tick last = new Tick(Long.MIN_VALUE, "");
+
+    public LogClock(String pattern) {
+        this.pattern = pattern;
+    }
+
+    // 获取指定时间（毫秒）对应的格式化时间
+    public String format(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        Tick tick = last;
+        if (tick.second != second) {
+            // SimpleDateFormat 非线程安全，每秒最多新建一次
+            tick = new Tick(second, new SimpleDateFormat(pattern).format(new Date(second * 1000L)));
+            last = tick;
+        }
+        return tick.text;
+    }
+
+    public String now() {
+        return format(System.currentTimeMillis());
+    }
+
+    private static final class Tick {
+        final long second;
+        final String text;
+
+        Tick(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
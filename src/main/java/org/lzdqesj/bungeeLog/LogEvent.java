@@ -0,0 +1,219 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.UUID;
+
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+// 事件快照：每个事件只采集一次，文件和 WebSocket 都从这里取数据
+// 环形缓冲区中的实例会被循环复用，由 set() 整体覆盖
+public class LogEvent {
+
+    private EventType type;
+    private long timestamp;
+    // 产生时的 System.nanoTime()，用于统计写入和推送延迟
+    private long nanoTime;
+    private String level;
+    // 是否写入日志文件（对应各 log-* 开关）
+    private boolean logged;
+    private String playerName;
+    private UUID playerUuid;
+    private String address;
+    private String server;
+    private String otherServer;
+    private String text;
+    // 持久化日志中的序号，0 表示未写入预写日志
+    private long journalSequence;
+    // 启动时从预写日志恢复的事件，只补写日志文件
+    private boolean recovered;
+
+    public LogEvent() {
+    }
+
+    // 覆盖槽位中的全部字段
+    public LogEvent set(EventType type, String level, boolean logged, ProxiedPlayer player,
+                        String address, String server, String otherServer, String text) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.nanoTime = System.nanoTime();
+        this.level = level;
+        this.logged = logged;
+        this.playerName = player != null ? player.getName() : null;
+        this.playerUuid = player != null ? player.getUniqueId() : null;
+        this.address = address;
+        this.server = server;
+        this.otherServer = otherServer;
+        this.text = text;
+        this.journalSequence = 0;
+        this.recovered = false;
+        return this;
+    }
+
+    // 用预写日志中恢复的事件覆盖槽位，保留原来的时间戳
+    void restore(EventRecord record) {
+        this.type = record.getType();
+        this.timestamp = record.getTimestamp();
+        this.nanoTime = System.nanoTime();
+        this.level = record.getLevel();
+        this.logged = true;
+        this.playerName = record.getPlayerName();
+        this.playerUuid = record.getPlayerUuid();
+        this.address = record.getAddress();
+        this.server = record.getServer();
+        this.otherServer = record.getOtherServer();
+        this.text = record.getText();
+        this.journalSequence = record.getSequence();
+        this.recovered = true;
+    }
+
+    // 复制另一个槽位的全部字段，供允许丢弃最旧事件的缓冲区在释放槽位前取出
+    void copy(LogEvent source) {
+        this.type = source.type;
+        this.timestamp = source.timestamp;
+        this.nanoTime = source.nanoTime;
+        this.level = source.level;
+        this.logged = source.logged;
+        this.playerName = source.playerName;
+        this.playerUuid = source.playerUuid;
+        this.address = source.address;
+        this.server = source.server;
+        this.otherServer = source.otherServer;
+        this.text = source.text;
+        this.journalSequence = source.journalSequence;
+        this.recovered = source.recovered;
+    }
+
+    // 插件/控制台日志
+    public static LogEvent plugin(String level, String message) {
+        LogEvent event = new LogEvent();
+        event.type = EventType.PLUGIN;
+        event.timestamp = System.currentTimeMillis();
+        event.nanoTime = System.nanoTime();
+        event.level = level;
+        event.logged = true;
+        event.text = message;
+        return event;
+    }
+
+    // 渲染写入日志文件的可读文本
+    public void appendText(StringBuilder out) {
+        appendText(out, type, playerName, address, server, text);
+    }
+
+    static void appendText(StringBuilder out, EventType type, String playerName, String address,
+                           String server, String text) {
+        switch (type) {
+            case PLAYER_JOIN:
+                out.append("[玩家加入] ").append(playerName).append(" (").append(address).append(')');
+                break;
+            case PLAYER_QUIT:
+                out.append("[玩家离开] ").append(playerName);
+                break;
+            case SERVER_CONNECT:
+                out.append("[服务器连接] ").append(playerName).append(" -> ").append(server)
+                        .append(" | 原因: ").append(text);
+                break;
+            case PLAYER_GOTO_SERVER:
+                out.append("[服务器连接成功] ").append(playerName).append(" 已连接到 ").append(server);
+                break;
+            case PLAYER_LEAVE_SERVER:
+                out.append("[服务器断开] ").append(playerName).append(" 从 ").append(server).append(" 断开");
+                break;
+            case PLAYER_KICK:
+                out.append("[玩家被踢] ").append(playerName).append(" 从 ").append(server)
+                        .append(" 被踢出 | 原因: ").append(text);
+                break;
+            case COMMAND:
+                out.append("[命令] ").append(playerName).append(": ").append(text);
+                break;
+            case CHAT:
+                out.append("[聊天] ").append(playerName).append(": ").append(text);
+                break;
+            case PING:
+                out.append("[Ping] ").append(address);
+                break;
+            default:
+                out.append(text);
+                break;
+        }
+    }
+
+    // 序列化为 {"type":"plugin","message":...}
+    public void writePluginJson(StringBuilder out, StringBuilder scratch) {
+        scratch.setLength(0);
+        appendText(scratch);
+        new JsonWriter(out).beginObject()
+                .field("type", EventType.PLUGIN.getId())
+                .name("message").value(scratch)
+                .endObject();
+    }
+
+    // 序列化为玩家事件 {"type":"playerjoin","name":...,"uuid":...}
+    public void writePlayerJson(StringBuilder out) {
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", type.getId())
+                .field("name", playerName)
+                .field("uuid", playerUuid != null ? playerUuid.toString() : null);
+        if (type == EventType.PLAYER_GOTO_SERVER) {
+            json.field("server", server).field("from", otherServer != null ? otherServer : "none");
+        } else if (type == EventType.PLAYER_LEAVE_SERVER) {
+            json.field("server", server).field("to", otherServer != null ? otherServer : "none");
+        }
+        json.endObject();
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public String getLevel() {
+        return level;
+    }
+
+    public boolean isLogged() {
+        return logged;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public UUID getPlayerUuid() {
+        return playerUuid;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public String getOtherServer() {
+        return otherServer;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    long getJournalSequence() {
+        return journalSequence;
+    }
+
+    void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    public boolean isRecovered() {
+        return recovered;
+    }
+}
@@ -6,15 +6,42 @@ import java.util.logging.LogRecord;
 public class LogHandler extends Handler {
 
     private final BungeeLog plugin;
+    private final LoggingSession session;
+    private final LoggerFilter filter;
 
-    public LogHandler(BungeeLog plugin) {
+    public LogHandler(BungeeLog plugin, LoggingSession session, LoggerFilter filter) {
         this.plugin = plugin;
+        this.session = session;
+        this.filter = filter;
+        setLevel(filter.getLevel());
+    }
+
+    // 级别和日志器名称的预过滤，被过滤的记录不做任何格式化；插件自身的诊断记录不进入镜像
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        return record != null && filter.isLoggable(record) && !SelfDiagnostics.isDiagnostic(record);
     }
 
     @Override
     public void publish(LogRecord record) {
-        String message = getFormatter().format(record);
-        plugin.writeLog(record.getLevel().getName(), record.getMessage());
+        // 已被替换的会话不再转发，保证每条记录只写入一次
+        if (!session.isCurrent() || !isLoggable(record)) return;
+
+        // 转发过程中（或在写入线程等内部线程上）产生的记录不再进入镜像，阻断自我回环
+        if (SelfDiagnostics.isMuted()) {
+            plugin.getDiagnostics().loopBlocked();
+            return;
+        }
+        boolean previous = SelfDiagnostics.mute();
+        try {
+            plugin.writeLog(record.getLevel().getName(), record.getMessage());
+        } finally {
+            SelfDiagnostics.restore(previous);
+        }
+    }
+
+    public LoggingSession getSession() {
+        return session;
     }
 
     @Override
@@ -0,0 +1,176 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// 日志分段的旁路索引：写入时按块记录每行的偏移、时间、事件类型和玩家，查询时可以直接定位到对应的块
+//
+// 索引文件由连续的块记录组成，每块格式：
+//   int    块长度（不含自身）
+//   long   起始偏移     long 首行时间     long 末行时间
+//   int    事件类型掩码  int  行数
+//   short  玩家数，随后每个玩家: long uuidHigh, long uuidLow, UTF 名称
+//   每行:  varint 相对上一行的偏移增量, varint 行长度, varint 相对首行的时间增量,
+//          byte 事件类型序号, varint 玩家序号+1（0 表示无玩家）
+public class LogIndexWriter implements Closeable {
+
+    private final DataOutputStream out;
+    private final int blockLines;
+
+    // 当前块
+    private final ByteArrayOutputStream entries = new ByteArrayOutputStream(4096);
+    private final List<UUID> playerIds = new ArrayList<>();
+    private final List<String> playerNames = new ArrayList<>();
+    private long blockStart = -1;
+    private long lastOffset;
+    private long firstTime;
+    private long lastTime;
+    private int typeMask;
+    private int lines;
+
+    public LogIndexWriter(File indexFile, int blockLines) throws IOException {
+        truncateTornTail(indexFile);
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true), 16 * 1024));
+        this.blockLines = Math.max(1, blockLines);
+    }
+
+    // 异常退出可能留下写了一半的块，续写前截掉，否则之后追加的块都会错位
+    private static void truncateTornTail(File indexFile) throws IOException {
+        if (!indexFile.exists()) return;
+
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "rw")) {
+            long length = raf.length();
+            long valid = 0;
+            while (valid + 4 <= length) {
+                raf.seek(valid);
+                int blockLength = raf.readInt();
+                if (blockLength <= 0 || valid + 4 + blockLength > length) {
+                    break;
+                }
+                valid += 4 + blockLength;
+            }
+            if (valid < length) {
+                raf.setLength(valid);
+            }
+        }
+    }
+
+    public static File indexFileFor(File segment) {
+        String name = segment.getName();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return new File(segment.getParentFile(), name + ".idx");
+    }
+
+    // 记录一行日志
+    public void add(long offset, int length, LogEvent event) throws IOException {
+        if (blockStart < 0) {
+            blockStart = offset;
+            lastOffset = offset;
+            firstTime = event.getTimestamp();
+        }
+
+        int player = 0;
+        if (event.getPlayerName() != null) {
+            player = playerIndex(event.getPlayerUuid(), event.getPlayerName()) + 1;
+        }
+
+        writeVarLong(entries, offset - lastOffset);
+        writeVarLong(entries, length);
+        writeVarLong(entries, Math.max(0, event.getTimestamp() - firstTime));
+        entries.write(event.getType().ordinal());
+        writeVarLong(entries, player);
+
+        lastOffset = offset;
+        lastTime = Math.max(lastTime, event.getTimestamp());
+        typeMask |= 1 << event.getType().ordinal();
+        lines++;
+
+        if (lines >= blockLines) {
+            finishBlock();
+        }
+    }
+
+    private int playerIndex(UUID uuid, String name) {
+        for (int i = 0; i < playerNames.size(); i++) {
+            if (playerNames.get(i).equals(name)) {
+                return i;
+            }
+        }
+        playerIds.add(uuid);
+        playerNames.add(name);
+        return playerNames.size() - 1;
+    }
+
+    // 把当前块写入索引文件
+    private void finishBlock() throws IOException {
+        if (lines == 0) return;
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream(entries.size() + 64 + playerNames.size() * 32);
+        DataOutputStream data = new DataOutputStream(block);
+        data.writeLong(blockStart);
+        data.writeLong(firstTime);
+        data.writeLong(lastTime);
+        data.writeInt(typeMask);
+        data.writeInt(lines);
+        data.writeShort(playerNames.size());
+        for (int i = 0; i < playerNames.size(); i++) {
+            UUID uuid = playerIds.get(i);
+            data.writeLong(uuid != null ? uuid.getMostSignificantBits() : 0L);
+            data.writeLong(uuid != null ? uuid.getLeastSignificantBits() : 0L);
+            data.writeUTF(playerNames.get(i));
+        }
+        entries.writeTo(data);
+        data.flush();
+
+        out.writeInt(block.size());
+        block.writeTo(out);
+
+        entries.reset();
+        playerIds.clear();
+        playerNames.clear();
+        blockStart = -1;
+        lastTime = 0;
+        typeMask = 0;
+        lines = 0;
+    }
+
+    // 与日志文件一起刷新，未满的块也一并写出，保证查询能看到已落盘的内容
+    public void flush() throws IOException {
+        finishBlock();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishBlock();
+        } finally {
+            out.close();
+        }
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+// 持久化模式的预写日志：指定类型的事件先追加到日志并 fsync，再写入日志文件和推送，代理崩溃或被强制结束时不会丢失
+// 事件线程只把记录追加到内存缓冲区就发布，不等待磁盘；提交线程把一个间隔内的追加合并为一次 fsync（组提交）
+// 写入线程处理到持久化事件时才等待所在批次落盘，落盘之前事件不会离开进程
+//
+// 文件格式：4 字节魔数，之后是若干记录 [长度 int][CRC32 int][内容]，内容首字节为记录类型：
+//   事件: 日志序号、时间戳、事件类型 id 和各字符串字段；检查点: 序号 N，表示 N 及之前的事件都已刷新到日志文件
+// 启动时从头扫描，长度或校验不符处视为崩溃时写了一半的尾部并截断，最后一个检查点之后的事件重新写入日志文件
+// 日志文件只刷新到操作系统，检查点覆盖进程崩溃；整机断电时检查点附近的少量事件可能在重放时重复（至少一次）
+public class LogJournal implements Closeable {
+
+    private static final int MAGIC = 0x424C4A31; // "BLJ1"
+    private static final byte RECORD_EVENT = 1;
+    private static final byte RECORD_CHECKPOINT = 2;
+    // 单条记录上限，扫描时超过该长度视为损坏
+    private static final int MAX_RECORD = 1 << 20;
+    // 所有事件都已写入日志文件且日志超过该大小时清空
+    private static final long COMPACT_BYTES = 4L * 1024L * 1024L;
+    // 写入线程等待落盘的上限；磁盘卡住时超时后照常写入并计数
+    private static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(2);
+    // 写入失败后保留待重试的字节上限，超过后放弃这些记录并报告
+    private static final int MAX_UNSYNCED_BYTES = 16 * 1024 * 1024;
+
+    private final BungeeLog plugin;
+    private final File file;
+    private final FileChannel channel;
+    private final Thread thread;
+    private volatile long commitIntervalMillis;
+    // 需要持久化的事件类型，按 EventType 序号的位掩码
+    private volatile int typeMask;
+
+    // 以下字段由 this 的锁保护
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private long lastAssigned;
+    private long lastCheckpoint;
+    private boolean closed;
+
+    // 已 fsync 的最大序号，由 durableLock 通知等待者
+    private final Object durableLock = new Object();
+    private volatile long durable;
+    // 最近一次提交失败且尚未恢复，此时写入线程不再等待落盘
+    private volatile boolean failing;
+    // 提交线程已退出
+    private volatile boolean stopped;
+    // 已取出但尚未成功 fsync 的记录，只由提交线程访问；写入失败时保留，下次提交重写
+    private ByteBuffer unsynced = ByteBuffer.allocate(64 * 1024);
+    // 日志文件中已落盘的长度，只由提交线程访问
+    private long journalBytes;
+    // 每个写入器处理到哪里，用于计算安全的检查点
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+    // 启动时扫描出的未写入事件，由第一个会话重放
+    private List<EventRecord> recovered;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong committedBytes = new AtomicLong();
+    private final AtomicLong lateAcks = new AtomicLong();
+    private final AtomicLong failedCommits = new AtomicLong();
+    private final AtomicLong lostBytes = new AtomicLong();
+    private int recoveredCount;
+    private long tornBytes;
+
+    public LogJournal(BungeeLog plugin, File file, LogSettings settings) throws IOException {
+        this.plugin = plugin;
+        this.file = file;
+        configure(settings);
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+
+        this.thread = new Thread(this::run, "BungeeLog-Journal");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // 提交间隔和事件类型可以随重载修改，不需要重新打开日志
+    public void configure(LogSettings settings) {
+        this.commitIntervalMillis = Math.max(0L, settings.getJournalCommitInterval());
+        int mask = 0;
+        for (String id : settings.getJournalEvents()) {
+            EventType type = EventType.fromId(id);
+            if (type != null) {
+                mask |= 1 << type.ordinal();
+            }
+        }
+        this.typeMask = mask != 0 ? mask : -1;
+    }
+
+    public boolean covers(EventType type) {
+        return (typeMask & 1 << type.ordinal()) != 0;
+    }
+
+    // 扫描整个日志：截断损坏的尾部，收集最后一个检查点之后的事件
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            writeHeader();
+            recovered = Collections.emptyList();
+            return;
+        }
+
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        // 一次读取可能不满，读到缓冲区满或文件末尾为止，否则有效记录会被当成损坏的尾部截掉
+        while (data.hasRemaining()) {
+            if (channel.read(data, data.position()) < 0) break;
+        }
+        data.flip();
+        if (data.remaining() < 4 || data.getInt() != MAGIC) {
+            // 不是本插件的日志或文件头已损坏，保留原文件供排查，重新开始
+            File corrupt = new File(file.getPath() + ".corrupt-" + System.currentTimeMillis());
+            plugin.getDiagnostics().severe("持久化日志文件头无效，已另存为 " + corrupt.getName());
+            Files.copy(file.toPath(), corrupt.toPath());
+            channel.truncate(0);
+            writeHeader();
+            recovered = Collections.emptyList();
+            return;
+        }
+
+        List<EventRecord> events = new ArrayList<>();
+        long checkpoint = 0;
+        long maxSequence = 0;
+        int valid = data.position();
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > MAX_RECORD || length > data.remaining()) break;
+
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != checksum) break;
+
+            ByteBuffer record = ByteBuffer.wrap(data.array(), data.position(), length);
+            data.position(data.position() + length);
+            byte kind = record.get();
+            if (kind == RECORD_EVENT) {
+                EventRecord event = decodeEvent(record);
+                if (event != null) {
+                    events.add(event);
+                    maxSequence = Math.max(maxSequence, event.getSequence());
+                }
+            } else if (kind == RECORD_CHECKPOINT) {
+                checkpoint = Math.max(checkpoint, record.getLong());
+            }
+            valid = data.position();
+        }
+
+        tornBytes = size - valid;
+        if (tornBytes > 0) {
+            channel.truncate(valid);
+            plugin.getDiagnostics().warning("持久化日志尾部有 " + tornBytes + " 字节不完整的记录，已截断");
+        }
+        channel.position(valid);
+        journalBytes = valid;
+
+        List<EventRecord> pending = new ArrayList<>();
+        for (EventRecord event : events) {
+            if (event.getSequence() > checkpoint) {
+                pending.add(event);
+            }
+        }
+        recovered = pending;
+        recoveredCount = pending.size();
+        lastAssigned = Math.max(maxSequence, checkpoint);
+        lastCheckpoint = checkpoint;
+        durable = lastAssigned;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(MAGIC).flip();
+        channel.write(header, 0);
+        channel.position(4);
+        channel.force(false);
+        journalBytes = 4;
+    }
+
+    // 把上次运行未写入日志文件的事件交给写入器，按原来的序号和时间戳写入；在会话生效之前调用，保证先于新事件
+    public void replay(AsyncLogWriter writer) {
+        List<EventRecord> events;
+        synchronized (this) {
+            events = recovered;
+            recovered = null;
+            if (events == null || events.isEmpty()) return;
+
+            // 恢复的事件写入日志文件之前，检查点不能越过上次的位置
+            Cursor cursor = writer.getJournalCursor();
+            if (cursor != null) {
+                cursor.flushed = lastCheckpoint;
+            }
+        }
+        // 在锁外等待槽位：写入线程排空之前，追加和提交线程不会被卡住
+        for (EventRecord event : events) {
+            long sequence;
+            while ((sequence = writer.tryClaim()) < 0) {
+                LockSupport.parkNanos(50_000L);
+            }
+            writer.slot(sequence).restore(event);
+            writer.publish(sequence);
+        }
+        plugin.getDiagnostics().warning("从持久化日志恢复了 " + events.size() + " 条上次未写入日志文件的事件");
+    }
+
+    // 追加一条事件并在同一把锁内抢占写入器的槽位，写入线程看到的事件顺序与日志序号一致
+    // 返回槽位序号（-1 表示被丢弃），事件已填入槽位，调用方随即发布，不等待落盘
+    public long append(AsyncLogWriter writer, EventType type, String level, ProxiedPlayer player,
+                       String address, String server, String otherServer, String text) {
+        Cursor cursor = writer.getJournalCursor();
+        while (true) {
+            synchronized (this) {
+                // 槽位只能非阻塞地抢占：持锁等待写入线程会让提交线程拿不到锁，而写入线程又在等已抢占槽位的发布
+                long sequence = writer.tryClaim();
+                if (sequence >= 0) {
+                    LogEvent event = writer.slot(sequence).set(type, level, true, player, address, server,
+                            otherServer, text);
+                    if (!closed && cursor != null) {
+                        long journalSequence = ++lastAssigned;
+                        event.setJournalSequence(journalSequence);
+                        cursor.assigned = journalSequence;
+                        encodeEvent(journalSequence, event);
+                        appended.incrementAndGet();
+                        notifyAll();
+                    }
+                    return sequence;
+                }
+            }
+            if (!writer.awaitSpace()) {
+                return -1;
+            }
+        }
+    }
+
+    // 由写入线程调用：等待包含该序号的批次 fsync 完成，0 表示没有写入日志
+    // 提交正在失败或提交线程已退出时不等待，避免每条事件都卡满超时
+    public void awaitDurable(long journalSequence) {
+        if (journalSequence == 0 || durable >= journalSequence || failing || stopped) return;
+
+        long deadline = System.nanoTime() + MAX_WAIT_NANOS;
+        synchronized (durableLock) {
+            while (durable < journalSequence && !failing && !stopped) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    lateAcks.incrementAndGet();
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(durableLock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // 调用方持有 this 的锁
+    private void encodeEvent(long journalSequence, LogEvent event) {
+        int start = begin();
+        buffer.put(RECORD_EVENT);
+        buffer.putLong(journalSequence);
+        buffer.putLong(event.getTimestamp());
+        putString(event.getType().getId());
+        putString(event.getLevel());
+        putString(event.getPlayerName());
+        putString(event.getPlayerUuid() != null ? event.getPlayerUuid().toString() : null);
+        putString(event.getAddress());
+        putString(event.getServer());
+        putString(event.getOtherServer());
+        putString(event.getText());
+        end(start);
+    }
+
+    private void encodeCheckpoint(long sequence) {
+        int start = begin();
+        buffer.put(RECORD_CHECKPOINT);
+        buffer.putLong(sequence);
+        end(start);
+    }
+
+    // 预留长度和校验字段，end 时回填
+    private int begin() {
+        ensure(8 + 64);
+        int start = buffer.position();
+        buffer.position(start + 8);
+        return start;
+    }
+
+    private void end(int start) {
+        int length = buffer.position() - start - 8;
+        crc.reset();
+        crc.update(buffer.array(), start + 8, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(4);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private static EventRecord decodeEvent(ByteBuffer record) {
+        try {
+            long sequence = record.getLong();
+            long timestamp = record.getLong();
+            EventType type = EventType.fromId(getString(record));
+            String level = getString(record);
+            String playerName = getString(record);
+            String uuid = getString(record);
+            String address = getString(record);
+            String server = getString(record);
+            String otherServer = getString(record);
+            String text = getString(record);
+            if (type == null) return null;
+            return new EventRecord(sequence, timestamp, type, false, level, playerName,
+                    uuid != null ? UUID.fromString(uuid) : null, address, server, otherServer, text);
+        } catch (RuntimeException e) {
+            // 校验通过但内容无法解析（例如来自更新版本的未知字段），跳过这一条
+            return null;
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) return null;
+        String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+                StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    // 提交线程：攒够一个提交间隔后交换缓冲区，在锁外写入并 fsync，然后唤醒等待的写入线程
+    private void run() {
+        SelfDiagnostics.mute();
+        while (true) {
+            synchronized (this) {
+                while (!closed && buffer.position() == 0 && unsynced.position() == 0
+                        && safeCheckpoint() <= lastCheckpoint) {
+                    try {
+                        // 检查点没有单独的通知，定期醒来检查写入器的进度
+                        wait(1000L);
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (closed && buffer.position() == 0 && safeCheckpoint() <= lastCheckpoint
+                        && (unsynced.position() == 0 || failing)) break;
+            }
+
+            long interval = commitIntervalMillis;
+            if (interval > 0 && !closed) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(interval));
+            }
+            if (!commit() && !closed) {
+                // 磁盘出错时稍后重试，不空转
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        stopped = true;
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    // 取出当前批次接在未成功的记录之后，一起写入并 fsync；失败时截回写入前的位置，记录留待下次重试
+    private boolean commit() {
+        ByteBuffer batch;
+        long batchSequence;
+        boolean compact = false;
+        synchronized (this) {
+            long safe = safeCheckpoint();
+            if (safe > lastCheckpoint) {
+                encodeCheckpoint(safe);
+                lastCheckpoint = safe;
+            }
+            batchSequence = lastAssigned;
+            batch = buffer;
+            buffer = spare;
+            buffer.clear();
+            spare = batch;
+            // 所有事件都已写入日志文件时，旧内容不再需要
+            if (safe >= lastAssigned && journalBytes + batch.position() > COMPACT_BYTES) {
+                compact = true;
+                batch.clear();
+            }
+        }
+
+        batch.flip();
+        if (compact) {
+            unsynced.clear();
+        } else if (unsynced.remaining() < batch.remaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(unsynced.capacity() * 2,
+                    unsynced.position() + batch.remaining()));
+            unsynced.flip();
+            larger.put(unsynced);
+            unsynced = larger;
+        }
+        unsynced.put(batch);
+        batch.clear();
+
+        long start = -1;
+        try {
+            if (compact) {
+                channel.truncate(4);
+                channel.position(4);
+            }
+            start = channel.position();
+            ByteBuffer pending = (ByteBuffer) unsynced.duplicate().flip();
+            int bytes = pending.remaining();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            channel.force(false);
+            unsynced.clear();
+            journalBytes = start + bytes;
+            commits.incrementAndGet();
+            committedBytes.addAndGet(bytes);
+            if (failing) {
+                plugin.getDiagnostics().warning("持久化日志已恢复写入");
+            }
+
+            synchronized (durableLock) {
+                failing = false;
+                durable = batchSequence;
+                durableLock.notifyAll();
+            }
+            return true;
+        } catch (IOException e) {
+            failedCommits.incrementAndGet();
+            // 写了一半的记录会让扫描在这里停下，截回去再重试
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                    channel.position(start);
+                } catch (IOException ignored) {
+                }
+            }
+            if (unsynced.position() > MAX_UNSYNCED_BYTES) {
+                lostBytes.addAndGet(unsynced.position());
+                plugin.getDiagnostics().severe("持久化日志写入失败，放弃 " + unsynced.position()
+                        + " 字节未落盘的记录（这些事件仍会写入日志文件，但不受崩溃保护）: " + e.getMessage());
+                unsynced.clear();
+            } else {
+                plugin.getDiagnostics().severe("持久化日志写入失败，" + unsynced.position()
+                        + " 字节记录将重试: " + e.getMessage());
+            }
+            synchronized (durableLock) {
+                failing = true;
+                durableLock.notifyAll();
+            }
+            return false;
+        }
+    }
+
+    // 所有写入器都已刷新到日志文件的最大序号；有未完成事件的写入器以它已刷新的位置为界，调用方持有 this 的锁
+    private long safeCheckpoint() {
+        // 恢复的事件重放之前，检查点停在上次的位置
+        if (recovered != null && !recovered.isEmpty()) return lastCheckpoint;
+
+        long safe = lastAssigned;
+        for (Cursor cursor : cursors) {
+            long assigned = cursor.assigned;
+            long flushed = cursor.flushed;
+            if (assigned > flushed) {
+                safe = Math.min(safe, flushed);
+            }
+        }
+        return safe;
+    }
+
+    // 为写入器登记进度，写入器关闭并排空后注销
+    public Cursor register() {
+        Cursor cursor = new Cursor();
+        synchronized (this) {
+            cursor.assigned = lastAssigned;
+            cursor.flushed = lastAssigned;
+        }
+        cursors.add(cursor);
+        return cursor;
+    }
+
+    public void unregister(Cursor cursor) {
+        // 仍有未写入的事件时保留，检查点不会越过它们，下次启动时重放
+        if (cursor.assigned <= cursor.flushed) {
+            cursors.remove(cursor);
+        }
+    }
+
+    // 停止提交线程：写入剩余记录和最终检查点，全部事件都已写入日志文件时清空
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            synchronized (this) {
+                if (safeCheckpoint() >= lastAssigned && !thread.isAlive()) {
+                    channel.truncate(4);
+                    channel.force(false);
+                }
+            }
+            channel.close();
+        } catch (IOException e) {
+            plugin.getDiagnostics().severe("关闭持久化日志失败: " + e.getMessage());
+        }
+        synchronized (durableLock) {
+            durableLock.notifyAll();
+        }
+    }
+
+    public long getAppendedCount() {
+        return appended.get();
+    }
+
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    public long getCommittedBytes() {
+        return committedBytes.get();
+    }
+
+    public long getLateAckCount() {
+        return lateAcks.get();
+    }
+
+    public long getFailedCommitCount() {
+        return failedCommits.get();
+    }
+
+    public long getLostBytes() {
+        return lostBytes.get();
+    }
+
+    public int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    public long getTornBytes() {
+        return tornBytes;
+    }
+
+    public synchronized long getCheckpoint() {
+        return lastCheckpoint;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastAssigned;
+    }
+
+    // 单个写入器的进度：assigned 是分配给它的最大序号，flushed 是它已刷新到日志文件的最大序号
+    public static final class Cursor {
+        volatile long assigned;
+        volatile long flushed;
+
+        public void flushed(long sequence) {
+            if (sequence > flushed) {
+                flushed = sequence;
+            }
+        }
+
+        public long getAssigned() {
+            return assigned;
+        }
+    }
+}
@@ -17,36 +17,23 @@ public class LogListener implements Listener {
     @EventHandler
     public void onPlayerJoin(PostLoginEvent event) {
         ProxiedPlayer player = event.getPlayer();
+        boolean logged = plugin.getSettings().isLogPlayerConnections();
 
-        // 写入日志
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-player-connections", true)) {
-            plugin.writeLog("INFO", String.format("[玩家加入] %s (%s)",
-                    player.getName(),
-                    player.getAddress().getAddress().getHostAddress()
-            ));
-        }
-
-        // WebSocket 事件
-        if (plugin.isWebapiEnabled()) {
-            plugin.sendPlayerEvent("playerjoin", player);
+        // 写入日志 + WebSocket 事件
+        if (logged || plugin.isWebapiEnabled()) {
+            String address = player.getAddress().getAddress().getHostAddress();
+            plugin.emit(EventType.PLAYER_JOIN, "INFO", logged, player, address, null, null, null);
         }
     }
 
     // 2. 玩家离开事件
     @EventHandler
     public void onPlayerQuit(PlayerDisconnectEvent event) {
-        ProxiedPlayer player = event.getPlayer();
+        boolean logged = plugin.getSettings().isLogPlayerConnections();
 
-        // 写入日志
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-player-connections", true)) {
-            plugin.writeLog("INFO", String.format("[玩家离开] %s",
-                    player.getName()
-            ));
-        }
-
-        // WebSocket 事件
-        if (plugin.isWebapiEnabled()) {
-            plugin.sendPlayerEvent("playerquit", player);
+        // 写入日志 + WebSocket 事件
+        if (logged || plugin.isWebapiEnabled()) {
+            plugin.emit(EventType.PLAYER_QUIT, "INFO", logged, event.getPlayer(), null, null, null, null);
         }
     }
 
@@ -55,16 +42,11 @@ public class LogListener implements Listener {
     public void onServerConnect(ServerConnectEvent event) {
         if (event.isCancelled()) return;
 
-        ProxiedPlayer player = event.getPlayer();
-        String targetServer = event.getTarget().getName();
-
         // 写入日志
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-server-switches", true)) {
-            plugin.writeLog("INFO", String.format("[服务器连接] %s -> %s | 原因: %s",
-                    player.getName(),
-                    targetServer,
-                    event.getReason().toString().toLowerCase()
-            ));
+        if (plugin.getSettings().isLogServerSwitches()) {
+            String reason = event.getReason().toString().toLowerCase();
+            plugin.emit(EventType.SERVER_CONNECT, "INFO", true, event.getPlayer(), null,
+                    event.getTarget().getName(), null, reason);
         }
     }
 
@@ -72,23 +54,13 @@ public class LogListener implements Listener {
     @EventHandler
     public void onServerConnected(ServerConnectedEvent event) {
         ProxiedPlayer player = event.getPlayer();
-        String serverName = event.getServer().getInfo().getName();
-
-        // 写入日志
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-server-switches", true)) {
-            plugin.writeLog("INFO", String.format("[服务器连接成功] %s 已连接到 %s",
-                    player.getName(),
-                    serverName
-            ));
-        }
+        boolean logged = plugin.getSettings().isLogServerSwitches();
 
-        // WebSocket 事件 - 玩家连接到子服
-        if (plugin.isWebapiEnabled()) {
-            plugin.sendPlayerEvent("playergotoserver", player,
-                    "server", serverName,
-                    "from", event.getPlayer().getServer() != null ?
-                            event.getPlayer().getServer().getInfo().getName() : "none"
-            );
+        // 写入日志 + WebSocket 事件 - 玩家连接到子服
+        if (logged || plugin.isWebapiEnabled()) {
+            String serverName = event.getServer().getInfo().getName();
+            String from = player.getServer() != null ? player.getServer().getInfo().getName() : null;
+            plugin.emit(EventType.PLAYER_GOTO_SERVER, "INFO", logged, player, null, serverName, from, null);
         }
     }
 
@@ -96,35 +68,23 @@ public class LogListener implements Listener {
     @EventHandler
     public void onServerDisconnect(ServerDisconnectEvent event) {
         ProxiedPlayer player = event.getPlayer();
-        String serverName = event.getTarget().getName();
-
-        // 写入日志
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-server-switches", true)) {
-            plugin.writeLog("INFO", String.format("[服务器断开] %s 从 %s 断开",
-                    player.getName(),
-                    serverName
-            ));
-        }
+        boolean logged = plugin.getSettings().isLogServerSwitches();
 
-        // WebSocket 事件 - 玩家离开子服
-        if (plugin.isWebapiEnabled()) {
-            plugin.sendPlayerEvent("playerleaveserver", player,
-                    "server", serverName,
-                    "to", player.getServer() != null ?
-                            player.getServer().getInfo().getName() : "none"
-            );
+        // 写入日志 + WebSocket 事件 - 玩家离开子服
+        if (logged || plugin.isWebapiEnabled()) {
+            String serverName = event.getTarget().getName();
+            String to = player.getServer() != null ? player.getServer().getInfo().getName() : null;
+            plugin.emit(EventType.PLAYER_LEAVE_SERVER, "INFO", logged, player, null, serverName, to, null);
         }
     }
 
     // 6. 玩家被踢事件
     @EventHandler
     public void onPlayerKick(ServerKickEvent event) {
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-server-switches", true)) {
-            plugin.writeLog("WARNING", String.format("[玩家被踢] %s 从 %s 被踢出 | 原因: %s",
-                    event.getPlayer().getName(),
-                    event.getKickedFrom().getName(),
-                    event.getKickReasonComponent().toString()
-            ));
+        if (plugin.getSettings().isLogServerSwitches()) {
+            String reason = event.getKickReasonComponent().toString();
+            plugin.emit(EventType.PLAYER_KICK, "WARNING", true, event.getPlayer(), null,
+                    event.getKickedFrom().getName(), null, reason);
         }
     }
 
@@ -136,19 +96,14 @@ public class LogListener implements Listener {
         }
 
         ProxiedPlayer player = (ProxiedPlayer) event.getSender();
-        String message = event.getMessage();
 
         if (event.isCommand()) {
-            if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-commands", true)) {
-                plugin.writeLog("INFO", String.format("[命令] %s: %s",
-                        player.getName(), message
-                ));
+            if (plugin.getSettings().isLogCommands()) {
+                plugin.emit(EventType.COMMAND, "INFO", true, player, null, null, null, event.getMessage());
             }
         } else {
-            if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-player-chat", true)) {
-                plugin.writeLog("INFO", String.format("[聊天] %s: %s",
-                        player.getName(), message
-                ));
+            if (plugin.getSettings().isLogPlayerChat()) {
+                plugin.emit(EventType.CHAT, "INFO", true, player, null, null, null, event.getMessage());
             }
         }
     }
@@ -156,10 +111,9 @@ public class LogListener implements Listener {
     // 8. Ping 事件
     @EventHandler
     public void onPing(ProxyPingEvent event) {
-        if (plugin.getConfig() != null && plugin.getConfig().getBoolean("log-pings", false)) {
-            plugin.writeLog("INFO", String.format("[Ping] %s",
-                    event.getConnection().getAddress().getAddress().getHostAddress()
-            ));
+        if (plugin.getSettings().isLogPings()) {
+            String address = event.getConnection().getAddress().getAddress().getHostAddress();
+            plugin.emit(EventType.PING, "INFO", true, null, address, null, null, null);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,294 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.Collections;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 日志管线的运行指标：计数器和延迟直方图在插件整个生命周期内累计，重载不会清零
+// 写入路径上只有原子自增；队列深度、丢弃数、客户端积压等按需从各组件读取
+// 同一份数据有三种输出：/bungeelog metrics、WebSocket 的 metrics 消息和 Prometheus 文本格式
+public class LogMetrics {
+
+    private static final EventType[] TYPES = EventType.values();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // 写入线程处理的事件数，按 EventType 序号
+    private final AtomicLongArray events = new AtomicLongArray(TYPES.length);
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+    // 从 emit 到写入日志文件
+    private final LatencyHistogram eventToDisk = new LatencyHistogram();
+    // 从 emit 到交给 WebSocket 客户端的发送队列
+    private final LatencyHistogram eventToSocket = new LatencyHistogram();
+
+    private final long startedAt = System.currentTimeMillis();
+
+    public void recordEvent(EventType type) {
+        events.incrementAndGet(type.ordinal());
+    }
+
+    public void recordWrite(int bytes, long latencyNanos) {
+        bytesWritten.addAndGet(bytes);
+        eventToDisk.record(latencyNanos);
+    }
+
+    public void recordFlush(long nanos) {
+        flushes.incrementAndGet();
+        flushLatency.record(nanos);
+    }
+
+    public void recordSocket(long latencyNanos) {
+        eventToSocket.record(latencyNanos);
+    }
+
+    public long getEvents(EventType type) {
+        return events.get(type.ordinal());
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    public LatencyHistogram getEventToDisk() {
+        return eventToDisk;
+    }
+
+    public LatencyHistogram getEventToSocket() {
+        return eventToSocket;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    // 各组件当前的队列和丢弃情况，三种输出共用
+    public static final class Gauges {
+
+        private int queueDepth;
+        private int queueCapacity;
+        private long droppedQueue;
+        private long droppedThrottle;
+        private long droppedSinks;
+        private long droppedClients;
+        private int pendingHandshakes;
+        private long rejectedPerAddress;
+        private long rejectedBusy;
+        private long rejectedBackoff;
+        private long authFailures;
+        private long authTimeouts;
+        private Collection<ClientSession> clients = Collections.emptyList();
+
+        public static Gauges collect(BungeeLog plugin) {
+            Gauges gauges = new Gauges();
+            LoggingSession session = plugin.getLoggingSession();
+            if (session != null) {
+                gauges.queueDepth = session.getWriter().getQueueSize();
+                gauges.queueCapacity = session.getWriter().getQueueCapacity();
+                gauges.droppedQueue = session.getWriter().getDroppedCount();
+                EventThrottle throttle = session.getThrottle();
+                gauges.droppedThrottle = throttle.getRateLimitedCount() + throttle.getSampledOutCount()
+                        + throttle.getDeduplicatedCount();
+                for (SinkPipeline sink : session.getSinks().getPipelines()) {
+                    gauges.droppedSinks += sink.getDroppedCount();
+                }
+            }
+            BungeeWebSocketServer server = plugin.getWebSocketServer();
+            if (server != null) {
+                gauges.clients = server.getClientSessions();
+                ConnectionGuard guard = server.getGuard();
+                gauges.pendingHandshakes = server.getPendingCount();
+                gauges.rejectedPerAddress = guard.getRejectedPerAddress();
+                gauges.rejectedBusy = guard.getRejectedBusy();
+                gauges.rejectedBackoff = guard.getRejectedBackoff();
+                gauges.authFailures = guard.getAuthFailures();
+                gauges.authTimeouts = guard.getAuthTimeouts();
+                for (ClientSession client : gauges.clients) {
+                    gauges.droppedClients += client.getDroppedCount();
+                }
+            }
+            return gauges;
+        }
+
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getDroppedQueue() {
+            return droppedQueue;
+        }
+
+        public long getDroppedThrottle() {
+            return droppedThrottle;
+        }
+
+        public long getDroppedSinks() {
+            return droppedSinks;
+        }
+
+        public long getDroppedClients() {
+            return droppedClients;
+        }
+
+        public Collection<ClientSession> getClients() {
+            return clients;
+        }
+    }
+
+    // {"type":"metrics","time":..., ...}，延迟单位为微秒
+    public void writeJson(StringBuilder out, Gauges gauges) {
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", "metrics")
+                .field("time", System.currentTimeMillis())
+                .field("uptime", System.currentTimeMillis() - startedAt);
+
+        json.name("events").beginObject();
+        for (EventType type : TYPES) {
+            json.field(type.getId(), events.get(type.ordinal()));
+        }
+        json.endObject();
+
+        json.field("bytes", bytesWritten.get())
+                .field("flushes", flushes.get())
+                .name("queue").beginObject()
+                .field("depth", gauges.queueDepth)
+                .field("capacity", gauges.queueCapacity)
+                .endObject()
+                .name("dropped").beginObject()
+                .field("queue", gauges.droppedQueue)
+                .field("throttle", gauges.droppedThrottle)
+                .field("sinks", gauges.droppedSinks)
+                .field("clients", gauges.droppedClients)
+                .endObject();
+
+        json.name("connections").beginObject()
+                .field("pending", gauges.pendingHandshakes)
+                .field("rejectedPerIp", gauges.rejectedPerAddress)
+                .field("rejectedBusy", gauges.rejectedBusy)
+                .field("rejectedBackoff", gauges.rejectedBackoff)
+                .field("authFailures", gauges.authFailures)
+                .field("authTimeouts", gauges.authTimeouts)
+                .endObject();
+
+        writeJson(json.name("flush"), flushLatency.snapshot());
+        writeJson(json.name("eventToDisk"), eventToDisk.snapshot());
+        writeJson(json.name("eventToSocket"), eventToSocket.snapshot());
+
+        json.name("clients").beginArray();
+        for (ClientSession client : gauges.clients) {
+            json.beginObject()
+                    .field("address", String.valueOf(client.getConnection().getRemoteSocketAddress()))
+                    .field("backlog", client.getBacklog())
+                    .field("sent", client.getSentCount())
+                    .field("dropped", client.getDroppedCount())
+                    .endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    private static void writeJson(JsonWriter json, LatencyHistogram.Snapshot snapshot) {
+        json.beginObject()
+                .field("count", snapshot.getCount())
+                .field("mean", micros(snapshot.getMean()))
+                .field("p50", micros(snapshot.percentile(0.5)))
+                .field("p90", micros(snapshot.percentile(0.9)))
+                .field("p99", micros(snapshot.percentile(0.99)))
+                .field("p999", micros(snapshot.percentile(0.999)))
+                .field("max", micros(snapshot.getMax()))
+                .endObject();
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000L;
+    }
+
+    // Prometheus 文本格式（0.0.4），延迟以 summary 输出，单位为秒
+    public void writePrometheus(StringBuilder out, Gauges gauges) {
+        header(out, "bungeelog_events_total", "counter", "Events processed by the writer thread");
+        for (EventType type : TYPES) {
+            out.append("bungeelog_events_total{type=\"").append(type.getId()).append("\"} ")
+                    .append(events.get(type.ordinal())).append('\n');
+        }
+        sample(out, "bungeelog_written_bytes_total", "counter", "Bytes appended to the log file", bytesWritten.get());
+        sample(out, "bungeelog_flushes_total", "counter", "Log file flushes", flushes.get());
+        sample(out, "bungeelog_queue_depth", "gauge", "Events waiting in the ring buffer", gauges.queueDepth);
+        sample(out, "bungeelog_queue_capacity", "gauge", "Ring buffer capacity", gauges.queueCapacity);
+
+        header(out, "bungeelog_dropped_total", "counter", "Events dropped, by reason");
+        dropped(out, "queue", gauges.droppedQueue);
+        dropped(out, "throttle", gauges.droppedThrottle);
+        dropped(out, "sink", gauges.droppedSinks);
+        dropped(out, "client", gauges.droppedClients);
+
+        summary(out, "bungeelog_flush_duration_seconds", "Log file flush duration", flushLatency.snapshot());
+        summary(out, "bungeelog_event_to_disk_seconds", "Latency from emit to log file write", eventToDisk.snapshot());
+        summary(out, "bungeelog_event_to_socket_seconds", "Latency from emit to WebSocket send queue",
+                eventToSocket.snapshot());
+
+        sample(out, "bungeelog_websocket_clients", "gauge", "Authenticated WebSocket clients", gauges.clients.size());
+        sample(out, "bungeelog_websocket_pending_handshakes", "gauge", "WebSocket connections waiting to authenticate",
+                gauges.pendingHandshakes);
+        header(out, "bungeelog_websocket_rejected_total", "counter", "WebSocket connections refused, by reason");
+        rejected(out, "per_ip", gauges.rejectedPerAddress);
+        rejected(out, "busy", gauges.rejectedBusy);
+        rejected(out, "backoff", gauges.rejectedBackoff);
+        sample(out, "bungeelog_websocket_auth_failures_total", "counter", "Failed WebSocket authentications",
+                gauges.authFailures);
+        sample(out, "bungeelog_websocket_auth_timeouts_total", "counter", "WebSocket authentications that timed out",
+                gauges.authTimeouts);
+        header(out, "bungeelog_websocket_client_backlog", "gauge", "Messages buffered per WebSocket client");
+        for (ClientSession client : gauges.clients) {
+            out.append("bungeelog_websocket_client_backlog{client=\"")
+                    .append(String.valueOf(client.getConnection().getRemoteSocketAddress()).replace("\"", ""))
+                    .append("\"} ").append(client.getBacklog()).append('\n');
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String type, String help, long value) {
+        header(out, name, type, help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void dropped(StringBuilder out, String reason, long value) {
+        out.append("bungeelog_dropped_total{reason=\"").append(reason).append("\"} ").append(value).append('\n');
+    }
+
+    private static void rejected(StringBuilder out, String reason, long value) {
+        out.append("bungeelog_websocket_rejected_total{reason=\"").append(reason).append("\"} ").append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String help, LatencyHistogram.Snapshot snapshot) {
+        header(out, name, "summary", help);
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(snapshot.percentile(quantile))).append('\n');
+        }
+        out.append(name).append("_sum ").append(seconds(snapshot.getSum())).append('\n');
+        out.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
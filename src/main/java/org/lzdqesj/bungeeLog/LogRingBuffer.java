@@ -0,0 +1,135 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 多生产者/单消费者环形缓冲区：槽位预先分配并循环复用
+// 生产者通过 CAS 抢占序号、填充槽位后发布，消费者按序号顺序读取，热路径上不加锁也不分配对象
+// 允许丢弃最旧事件时，消费者先把槽位复制出来并用 CAS 推进消费序号再处理，生产者可以用同一个 CAS 挤掉最旧的一条
+public class LogRingBuffer {
+
+    // 消费者依次处理每个已发布的槽位
+    public interface Handler {
+        void onEvent(LogEvent event) throws Exception;
+    }
+
+    private final LogEvent[] slots;
+    private final int mask;
+    private final int shift;
+    // 每个槽位已发布的轮次，生产者填充完成后写入
+    private final AtomicIntegerArray published;
+    // 最后一个被抢占的序号
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // 最后一个已释放的序号；允许丢弃最旧事件时生产者也会推进
+    private final AtomicLong consumed = new AtomicLong(-1);
+    // 是否允许生产者挤掉最旧的事件
+    private final boolean lossy;
+    // 消费者独占的副本，lossy 模式下处理的是它而不是槽位本身
+    private final LogEvent copy = new LogEvent();
+
+    public LogRingBuffer(int requestedCapacity) {
+        this(requestedCapacity, false);
+    }
+
+    public LogRingBuffer(int requestedCapacity, boolean lossy) {
+        this.lossy = lossy;
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new LogEvent[capacity];
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new LogEvent();
+            published.set(i, -1);
+        }
+    }
+
+    // 抢占一个槽位，缓冲区已满时返回 -1
+    public long tryClaim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - slots.length > consumed.get()) {
+                return -1;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    // 获取序号对应的槽位，由抢占到该序号的生产者填充
+    public LogEvent get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    // 发布已填充的槽位，之后消费者即可读取
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    // 按顺序处理最多 limit 个已发布的槽位，返回处理数量
+    public int drain(Handler handler, int limit) throws Exception {
+        return lossy ? drainCopies(handler, limit) : drainInPlace(handler, limit);
+    }
+
+    private int drainInPlace(Handler handler, int limit) throws Exception {
+        long next = consumed.get() + 1;
+        long last = claimed.get();
+        int count = 0;
+
+        try {
+            while (count < limit && next <= last && isPublished(next)) {
+                LogEvent event = slots[(int) next & mask];
+                next++;
+                count++;
+                handler.onEvent(event);
+            }
+        } finally {
+            // 即使处理失败也要推进，否则整个缓冲区会被卡住
+            if (count > 0) {
+                consumed.set(next - 1);
+            }
+        }
+        return count;
+    }
+
+    // 逐条复制后释放槽位再处理，处理期间生产者可以复用这个槽位
+    private int drainCopies(Handler handler, int limit) throws Exception {
+        int count = 0;
+        while (count < limit) {
+            long next = consumed.get() + 1;
+            if (next > claimed.get() || !isPublished(next)) break;
+            copy.copy(slots[(int) next & mask]);
+            // 复制期间这一条被生产者挤掉时，槽位可能已被重新填充，副本作废
+            if (!consumed.compareAndSet(next - 1, next)) continue;
+            count++;
+            handler.onEvent(copy);
+        }
+        return count;
+    }
+
+    // 缓冲区已满时由生产者调用：释放最旧的一条，成功返回 true
+    // 最旧的槽位还在填充、已被消费者取走或是持久化事件时返回 false
+    public boolean dropOldest() {
+        if (!lossy) return false;
+        long oldest = consumed.get() + 1;
+        if (oldest > claimed.get() || !isPublished(oldest)) return false;
+        LogEvent event = slots[(int) oldest & mask];
+        if (event.getJournalSequence() > 0 || event.isRecovered()) return false;
+        return consumed.compareAndSet(oldest - 1, oldest);
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    // 已抢占但尚未处理的数量
+    public int size() {
+        return (int) (claimed.get() - consumed.get());
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
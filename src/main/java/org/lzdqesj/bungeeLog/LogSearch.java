@@ -0,0 +1,282 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+// 基于旁路索引的日志查询：先按块头的时间范围、事件类型掩码和玩家表跳过无关的块，只读取命中行对应的字节
+public class LogSearch {
+
+    // 查询条件，player 可以是玩家名（忽略大小写）或 UUID，typeMask 为 0 表示不限事件类型
+    public static final class Query {
+        private final long from;
+        private final long to;
+        private final String player;
+        private final int typeMask;
+        private final int limit;
+
+        public Query(long from, long to, String player, int typeMask, int limit) {
+            this.from = from;
+            this.to = to;
+            this.player = player == null || player.isEmpty() ? null : player;
+            this.typeMask = typeMask == 0 ? -1 : typeMask;
+            this.limit = limit;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+    }
+
+    // 一条命中的日志
+    public static final class Hit {
+        private final long timestamp;
+        private final EventType type;
+        private final String player;
+        private final String line;
+
+        Hit(long timestamp, EventType type, String player, String line) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.player = player;
+            this.line = line;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public EventType getType() {
+            return type;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public String getLine() {
+            return line;
+        }
+    }
+
+    // 逐条接收结果，返回 false 时停止查询
+    public interface Callback {
+        boolean onHit(Hit hit) throws IOException;
+    }
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private final File logsDir;
+    private final Charset charset;
+
+    public LogSearch(File logsDir, Charset charset) {
+        this.logsDir = logsDir;
+        this.charset = charset;
+    }
+
+    // 按时间从旧到新依次查询所有带索引的分段，返回命中条数
+    public int search(Query query, Callback callback) throws IOException {
+        File[] indexes = logsDir.listFiles((dir, name) -> name.startsWith("bungee") && name.endsWith(".log.idx"));
+        if (indexes == null) {
+            return 0;
+        }
+        Arrays.sort(indexes, (f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+
+        int found = 0;
+        for (File index : indexes) {
+            // 分段最后写入的时间早于查询起点，整个分段都不用看
+            if (index.lastModified() < query.from) continue;
+
+            File data = dataFileFor(index);
+            if (data == null) continue;
+
+            found = searchSegment(index, data, query, callback, found);
+            if (found < 0) {
+                return -found - 1;
+            }
+        }
+        return found;
+    }
+
+    // 返回累计命中数，提前结束时返回 -(命中数 + 1)
+    private int searchSegment(File index, File data, Query query, Callback callback, int found) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index), 16 * 1024));
+             SegmentReader reader = new SegmentReader(data)) {
+            byte[] block = new byte[4096];
+            List<long[]> matches = new ArrayList<>();
+            List<String> matchPlayers = new ArrayList<>();
+
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                    if (length <= 0) break;
+                    if (block.length < length) {
+                        block = new byte[Math.max(length, block.length * 2)];
+                    }
+                    in.readFully(block, 0, length);
+                } catch (EOFException e) {
+                    // 索引末尾可能是写入线程尚未写完的块
+                    break;
+                }
+
+                DataInputStream blockIn = new DataInputStream(new ByteArrayInputStream(block, 0, length));
+                long start = blockIn.readLong();
+                long firstTime = blockIn.readLong();
+                long lastTime = blockIn.readLong();
+                int typeMask = blockIn.readInt();
+                int lines = blockIn.readInt();
+
+                if (lastTime < query.from || firstTime > query.to || (typeMask & query.typeMask) == 0) {
+                    continue;
+                }
+
+                int playerCount = blockIn.readUnsignedShort();
+                String[] players = new String[playerCount];
+                int wanted = -1;
+                for (int i = 0; i < playerCount; i++) {
+                    UUID uuid = new UUID(blockIn.readLong(), blockIn.readLong());
+                    players[i] = blockIn.readUTF();
+                    if (query.player != null && wanted < 0 && matchesPlayer(query.player, uuid, players[i])) {
+                        wanted = i;
+                    }
+                }
+                if (query.player != null && wanted < 0) {
+                    continue;
+                }
+
+                matches.clear();
+                matchPlayers.clear();
+                long offset = start;
+                for (int i = 0; i < lines; i++) {
+                    offset += LogIndexWriter.readVarLong(blockIn);
+                    int lineLength = (int) LogIndexWriter.readVarLong(blockIn);
+                    long time = firstTime + LogIndexWriter.readVarLong(blockIn);
+                    int type = blockIn.readUnsignedByte();
+                    int player = (int) LogIndexWriter.readVarLong(blockIn) - 1;
+
+                    if (time < query.from || time > query.to) continue;
+                    if ((query.typeMask & (1 << type)) == 0) continue;
+                    if (query.player != null && player != wanted) continue;
+
+                    matches.add(new long[]{offset, lineLength, time, type});
+                    matchPlayers.add(player >= 0 ? players[player] : null);
+                }
+
+                for (int i = 0; i < matches.size(); i++) {
+                    long[] match = matches.get(i);
+                    String line = reader.readLine(match[0], (int) match[1], charset);
+                    if (line == null) continue;
+
+                    EventType type = match[3] < TYPES.length ? TYPES[(int) match[3]] : EventType.PLUGIN;
+                    found++;
+                    if (!callback.onHit(new Hit(match[2], type, matchPlayers.get(i), line)) || found >= query.limit) {
+                        return -found - 1;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean matchesPlayer(String player, UUID uuid, String name) {
+        return player.equalsIgnoreCase(name) || player.equalsIgnoreCase(uuid.toString());
+    }
+
+    // 索引对应的日志分段，未压缩的优先，已压缩的次之
+    private static File dataFileFor(File index) {
+        String name = index.getName();
+        File log = new File(index.getParentFile(), name.substring(0, name.length() - 4));
+        if (log.exists()) {
+            return log;
+        }
+        File gz = new File(index.getParentFile(), log.getName() + ".gz");
+        return gz.exists() ? gz : null;
+    }
+
+    // 按偏移读取分段中的一行：未压缩的直接定位，已压缩的顺序解压跳过，命中的偏移是递增的
+    private static final class SegmentReader implements Closeable {
+
+        private final File file;
+        private final boolean gzip;
+        private RandomAccessFile raf;
+        private InputStream stream;
+        private long position;
+        private byte[] buffer = new byte[512];
+
+        SegmentReader(File file) {
+            this.file = file;
+            this.gzip = file.getName().endsWith(".gz");
+        }
+
+        String readLine(long offset, int length, Charset charset) throws IOException {
+            if (buffer.length < length) {
+                buffer = new byte[length];
+            }
+            int read = gzip ? readCompressed(offset, length) : readPlain(offset, length);
+            if (read <= 0) {
+                return null;
+            }
+
+            // 去掉行尾换行；mmap 分段未写到的部分是零字节
+            while (read > 0 && (buffer[read - 1] == '\n' || buffer[read - 1] == '\r' || buffer[read - 1] == 0)) {
+                read--;
+            }
+            return new String(buffer, 0, read, charset);
+        }
+
+        private int readPlain(long offset, int length) throws IOException {
+            if (raf == null) {
+                raf = new RandomAccessFile(file, "r");
+            }
+            long available = raf.length() - offset;
+            if (available <= 0) {
+                return -1;
+            }
+            int wanted = (int) Math.min(length, available);
+            raf.seek(offset);
+            raf.readFully(buffer, 0, wanted);
+            return wanted;
+        }
+
+        private int readCompressed(long offset, int length) throws IOException {
+            if (stream == null || offset < position) {
+                if (stream != null) {
+                    stream.close();
+                }
+                stream = new GZIPInputStream(new FileInputStream(file), 64 * 1024);
+                position = 0;
+            }
+            while (position < offset) {
+                long skipped = stream.skip(offset - position);
+                if (skipped <= 0) {
+                    return -1;
+                }
+                position += skipped;
+            }
+
+            int total = 0;
+            while (total < length) {
+                int read = stream.read(buffer, total, length - total);
+                if (read < 0) break;
+                total += read;
+            }
+            position += total;
+            return total;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (raf != null) {
+                raf.close();
+            }
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package org.lzdqesj.bungeeLog;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.md_5.bungee.config.Configuration;
+
+// 不可变的配置快照：加载配置时一次性解析，重载时整体替换，事件线程只读取 final 字段
+public final class LogSettings {
+
+    // 日志文件写入方式
+    public enum SinkType {
+        FILE,   // 缓冲输出流
+        MMAP;   // 预分配的内存映射分段
+
+        public static SinkType parse(String value) {
+            return "mmap".equalsIgnoreCase(value != null ? value.trim() : null) ? MMAP : FILE;
+        }
+    }
+
+    private final String logFormat;
+    private final LogTemplate logTemplate;
+    private final boolean consoleMirror;
+    private final LoggerFilter loggerFilter;
+    private final boolean dailyRolling;
+    private final Charset charset;
+    private final int maxLogFiles;
+    private final long maxLogFileBytes;
+    private final long maxLogTotalBytes;
+    private final long maxLogAgeMillis;
+    private final boolean compressLogs;
+    private final SinkType logSink;
+    private final int mmapSegmentBytes;
+    private final long mmapSyncInterval;
+    private final boolean logIndex;
+    private final int indexBlockLines;
+
+    // 事件开关
+    private final boolean logPlayerConnections;
+    private final boolean logPlayerChat;
+    private final boolean logCommands;
+    private final boolean logServerSwitches;
+    private final boolean logPings;
+    private final ThrottleSettings throttle;
+
+    // 异步写入
+    private final int asyncQueueSize;
+    private final int asyncBatchSize;
+    private final long asyncFlushInterval;
+    private final AsyncLogWriter.OverflowPolicy asyncOverflowPolicy;
+
+    // 持久化日志
+    private final boolean journalEnabled;
+    private final long journalCommitInterval;
+    private final List<String> journalEvents;
+
+    // WebAPI
+    private final boolean webapiEnabled;
+    private final String webapiAddress;
+    private final String webapiPassword;
+    private final int webapiClientBufferSize;
+    private final int webapiSocketWindow;
+    private final ClientSession.SlowClientPolicy webapiSlowClientPolicy;
+    private final int webapiSearchMaxResults;
+    private final int webapiHistorySize;
+    private final long webapiHistoryBytes;
+    private final List<String> webapiHistoryEvents;
+    private final boolean webapiCompression;
+    private final int webapiCompressionThreshold;
+    private final long webapiBatchWindow;
+    private final long webapiMetricsInterval;
+    private final int webapiCommandThreads;
+    private final int webapiCommandQueue;
+    private final int webapiCommandConcurrency;
+    private final double webapiCommandRate;
+    private final int webapiCommandBurst;
+    private final long webapiCommandTimeout;
+    private final int webapiMaxMessageSize;
+    private final long webapiAuthTimeout;
+    private final int webapiMaxPending;
+    private final int webapiMaxConnectionsPerIp;
+    private final long webapiAuthBackoff;
+    private final long webapiAuthBackoffMax;
+    private final String metricsHttpAddress;
+
+    // 外部日志输出
+    private final List<SinkSettings> sinks;
+    private final int webapiSearchPageSize;
+
+    // config 为 null 时全部使用默认值
+    public LogSettings(Configuration config, Logger logger) {
+        logFormat = getString(config, "log-format", "[%time%] [%level%] %message%");
+        logTemplate = LogTemplate.compile(logFormat);
+        consoleMirror = getBoolean(config, "enable-console-mirror", true);
+        loggerFilter = new LoggerFilter(getString(config, "log-level", "ALL"),
+                config != null ? config.getStringList("log-include-loggers") : null,
+                config != null ? config.getStringList("log-exclude-loggers") : null, logger);
+        dailyRolling = getBoolean(config, "daily-rolling", true);
+        charset = parseCharset(getString(config, "encoding", "UTF-8"), logger);
+        maxLogFiles = getInt(config, "max-log-files", 30);
+        maxLogFileBytes = getLong(config, "max-log-file-size", 100L) * 1024L * 1024L;
+        maxLogTotalBytes = getLong(config, "max-log-total-size", 0L) * 1024L * 1024L;
+        maxLogAgeMillis = TimeUnit.DAYS.toMillis(getLong(config, "max-log-age", 0L));
+        compressLogs = getBoolean(config, "compress-logs", true);
+        logSink = SinkType.parse(getString(config, "log-sink", "file"));
+        mmapSegmentBytes = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1L, getLong(config, "mmap-segment-size", 64L)) * 1024L * 1024L);
+        mmapSyncInterval = getLong(config, "mmap-sync-interval", 1000L);
+        logIndex = getBoolean(config, "log-index", true);
+        indexBlockLines = getInt(config, "index-block-lines", 256);
+
+        logPlayerConnections = getBoolean(config, "log-player-connections", true);
+        logPlayerChat = getBoolean(config, "log-player-chat", true);
+        logCommands = getBoolean(config, "log-commands", true);
+        logServerSwitches = getBoolean(config, "log-server-switches", true);
+        logPings = getBoolean(config, "log-pings", false);
+        throttle = new ThrottleSettings(config != null && config.contains("throttle")
+                ? config.getSection("throttle") : null);
+
+        asyncQueueSize = getInt(config, "async-queue-size", 8192);
+        asyncBatchSize = getInt(config, "async-batch-size", 256);
+        asyncFlushInterval = getLong(config, "async-flush-interval", 1000L);
+        asyncOverflowPolicy = AsyncLogWriter.OverflowPolicy.parse(
+                getString(config, "async-overflow-policy", "drop-oldest"), logger);
+
+        journalEnabled = getBoolean(config, "journal", false);
+        journalCommitInterval = getLong(config, "journal-commit-interval", 5L);
+        journalEvents = Collections.unmodifiableList(new ArrayList<>(
+                config != null && config.contains("journal-events") ? config.getStringList("journal-events")
+                        : Arrays.asList("playerchat", "playercommand")));
+
+        webapiEnabled = getBoolean(config, "webapi", false);
+        webapiAddress = getString(config, "waaddress", "0.0.0.0:25796");
+        webapiPassword = getString(config, "wapassword", "bungeelog");
+        webapiClientBufferSize = getInt(config, "wa-client-buffer-size", 1024);
+        webapiSocketWindow = getInt(config, "wa-socket-window", 64);
+        webapiSlowClientPolicy = ClientSession.SlowClientPolicy.parse(
+                getString(config, "wa-slow-client-policy", "drop-oldest"));
+        webapiSearchMaxResults = getInt(config, "wa-search-max-results", 1000);
+        webapiSearchPageSize = getInt(config, "wa-search-page-size", 100);
+        webapiHistorySize = getInt(config, "wa-history-size", 0);
+        webapiHistoryBytes = getLong(config, "wa-history-memory", 1024L) * 1024L;
+        webapiHistoryEvents = Collections.unmodifiableList(new ArrayList<>(
+                config != null ? config.getStringList("wa-history-events") : Collections.<String>emptyList()));
+        webapiCompression = getBoolean(config, "wa-compression", true);
+        webapiCompressionThreshold = getInt(config, "wa-compression-threshold", 256);
+        webapiBatchWindow = getLong(config, "wa-batch-window", 0L);
+        webapiMetricsInterval = getLong(config, "wa-metrics-interval", 10000L);
+        webapiCommandThreads = getInt(config, "wa-command-threads", 2);
+        webapiCommandQueue = getInt(config, "wa-command-queue", 16);
+        webapiCommandConcurrency = getInt(config, "wa-command-concurrency", 2);
+        webapiCommandRate = config != null ? config.getDouble("wa-command-rate", 2.0) : 2.0;
+        webapiCommandBurst = getInt(config, "wa-command-burst", 5);
+        webapiCommandTimeout = getLong(config, "wa-command-timeout", 10000L);
+        webapiMaxMessageSize = Math.max(1024, getInt(config, "wa-max-message-size", 65536));
+        webapiAuthTimeout = getLong(config, "wa-auth-timeout", 5000L);
+        webapiMaxPending = getInt(config, "wa-max-pending", 64);
+        webapiMaxConnectionsPerIp = getInt(config, "wa-max-connections-per-ip", 8);
+        webapiAuthBackoff = getLong(config, "wa-auth-backoff", 1000L);
+        webapiAuthBackoffMax = getLong(config, "wa-auth-backoff-max", 300000L);
+        metricsHttpAddress = getString(config, "metrics-http", "").trim();
+
+        List<SinkSettings> sinkList = new ArrayList<>();
+        if (config != null) {
+            Configuration section = config.getSection("sinks");
+            for (String name : section.getKeys()) {
+                sinkList.add(new SinkSettings(name, section.getSection(name)));
+            }
+        }
+        sinks = Collections.unmodifiableList(sinkList);
+    }
+
+    private static String getString(Configuration config, String key, String def) {
+        return config != null ? config.getString(key, def) : def;
+    }
+
+    private static boolean getBoolean(Configuration config, String key, boolean def) {
+        return config != null ? config.getBoolean(key, def) : def;
+    }
+
+    private static int getInt(Configuration config, String key, int def) {
+        return config != null ? config.getInt(key, def) : def;
+    }
+
+    private static long getLong(Configuration config, String key, long def) {
+        return config != null ? config.getLong(key, def) : def;
+    }
+
+    // 解析日志编码，无效时回退到 UTF-8
+    private static Charset parseCharset(String name, Logger logger) {
+        try {
+            return Charset.forName(name);
+        } catch (Exception e) {
+            logger.warning("无效的日志编码: " + name + "，使用 UTF-8");
+            return Charset.forName("UTF-8");
+        }
+    }
+
+    public String getLogFormat() {
+        return logFormat;
+    }
+
+    public LogTemplate getLogTemplate() {
+        return logTemplate;
+    }
+
+    public boolean isConsoleMirror() {
+        return consoleMirror;
+    }
+
+    public LoggerFilter getLoggerFilter() {
+        return loggerFilter;
+    }
+
+    public boolean isDailyRolling() {
+        return dailyRolling;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int getMaxLogFiles() {
+        return maxLogFiles;
+    }
+
+    public long getMaxLogFileBytes() {
+        return maxLogFileBytes;
+    }
+
+    public long getMaxLogTotalBytes() {
+        return maxLogTotalBytes;
+    }
+
+    public long getMaxLogAgeMillis() {
+        return maxLogAgeMillis;
+    }
+
+    public boolean isCompressLogs() {
+        return compressLogs;
+    }
+
+    public SinkType getLogSink() {
+        return logSink;
+    }
+
+    public int getMmapSegmentBytes() {
+        return mmapSegmentBytes;
+    }
+
+    public long getMmapSyncInterval() {
+        return mmapSyncInterval;
+    }
+
+    public boolean isLogIndex() {
+        return logIndex;
+    }
+
+    public int getIndexBlockLines() {
+        return indexBlockLines;
+    }
+
+    public boolean isLogPlayerConnections() {
+        return logPlayerConnections;
+    }
+
+    public boolean isLogPlayerChat() {
+        return logPlayerChat;
+    }
+
+    public boolean isLogCommands() {
+        return logCommands;
+    }
+
+    public boolean isLogServerSwitches() {
+        return logServerSwitches;
+    }
+
+    public boolean isLogPings() {
+        return logPings;
+    }
+
+    public ThrottleSettings getThrottle() {
+        return throttle;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public int getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    public long getAsyncFlushInterval() {
+        return asyncFlushInterval;
+    }
+
+    public AsyncLogWriter.OverflowPolicy getAsyncOverflowPolicy() {
+        return asyncOverflowPolicy;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public long getJournalCommitInterval() {
+        return journalCommitInterval;
+    }
+
+    public List<String> getJournalEvents() {
+        return journalEvents;
+    }
+
+    public boolean isWebapiEnabled() {
+        return webapiEnabled;
+    }
+
+    public String getWebapiAddress() {
+        return webapiAddress;
+    }
+
+    public String getWebapiPassword() {
+        return webapiPassword;
+    }
+
+    public int getWebapiClientBufferSize() {
+        return webapiClientBufferSize;
+    }
+
+    public int getWebapiSocketWindow() {
+        return webapiSocketWindow;
+    }
+
+    public ClientSession.SlowClientPolicy getWebapiSlowClientPolicy() {
+        return webapiSlowClientPolicy;
+    }
+
+    public int getWebapiSearchMaxResults() {
+        return webapiSearchMaxResults;
+    }
+
+    public int getWebapiSearchPageSize() {
+        return webapiSearchPageSize;
+    }
+
+    public int getWebapiHistorySize() {
+        return webapiHistorySize;
+    }
+
+    public long getWebapiHistoryBytes() {
+        return webapiHistoryBytes;
+    }
+
+    public List<String> getWebapiHistoryEvents() {
+        return webapiHistoryEvents;
+    }
+
+    public boolean isWebapiCompression() {
+        return webapiCompression;
+    }
+
+    public int getWebapiCompressionThreshold() {
+        return webapiCompressionThreshold;
+    }
+
+    public long getWebapiBatchWindow() {
+        return webapiBatchWindow;
+    }
+
+    public long getWebapiMetricsInterval() {
+        return webapiMetricsInterval;
+    }
+
+    public int getWebapiCommandThreads() {
+        return webapiCommandThreads;
+    }
+
+    public int getWebapiCommandQueue() {
+        return webapiCommandQueue;
+    }
+
+    public int getWebapiCommandConcurrency() {
+        return webapiCommandConcurrency;
+    }
+
+    public double getWebapiCommandRate() {
+        return webapiCommandRate;
+    }
+
+    public int getWebapiCommandBurst() {
+        return webapiCommandBurst;
+    }
+
+    public long getWebapiCommandTimeout() {
+        return webapiCommandTimeout;
+    }
+
+    public int getWebapiMaxMessageSize() {
+        return webapiMaxMessageSize;
+    }
+
+    public long getWebapiAuthTimeout() {
+        return webapiAuthTimeout;
+    }
+
+    public int getWebapiMaxPending() {
+        return webapiMaxPending;
+    }
+
+    public int getWebapiMaxConnectionsPerIp() {
+        return webapiMaxConnectionsPerIp;
+    }
+
+    public long getWebapiAuthBackoff() {
+        return webapiAuthBackoff;
+    }
+
+    public long getWebapiAuthBackoffMax() {
+        return webapiAuthBackoffMax;
+    }
+
+    public String getMetricsHttpAddress() {
+        return metricsHttpAddress;
+    }
+
+    public List<SinkSettings> getSinks() {
+        return sinks;
+    }
+}
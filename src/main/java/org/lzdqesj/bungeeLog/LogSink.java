@@ -0,0 +1,17 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+// 外部日志输出的扩展接口：每个输出由 SinkPipeline 包装，拥有独立的队列、线程、重试和熔断
+// write 只在该输出自己的线程上调用，实现不需要考虑并发；抛出异常表示这一批需要重试
+public interface LogSink extends Closeable {
+
+    void write(List<EventRecord> batch) throws IOException;
+
+    // 按 sinks 配置中的 type 创建输出，通过 SinkRegistry.register 注册
+    interface Factory {
+        LogSink create(BungeeLog plugin, SinkSettings settings) throws IOException;
+    }
+}
@@ -0,0 +1,94 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 预编译的日志格式：加载配置时把 log-format 拆成文本段和占位符段，渲染时按顺序追加
+public class LogTemplate {
+
+    private static final int LITERAL = 0;
+    private static final int TIME = 1;
+    private static final int LEVEL = 2;
+    private static final int MESSAGE = 3;
+
+    private static final String[] PLACEHOLDERS = {null, "%time%", "%level%", "%message%"};
+
+    private final String source;
+    private final int[] kinds;
+    private final String[] literals;
+
+    private LogTemplate(String source, int[] kinds, String[] literals) {
+        this.source = source;
+        this.kinds = kinds;
+        this.literals = literals;
+    }
+
+    // 编译格式字符串
+    public static LogTemplate compile(String format) {
+        List<Integer> kinds = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < format.length()) {
+            int kind = format.charAt(i) == '%' ? placeholderAt(format, i) : LITERAL;
+            if (kind == LITERAL) {
+                literal.append(format.charAt(i++));
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                kinds.add(LITERAL);
+                literals.add(literal.toString());
+                literal.setLength(0);
+            }
+            kinds.add(kind);
+            literals.add(null);
+            i += PLACEHOLDERS[kind].length();
+        }
+
+        if (literal.length() > 0) {
+            kinds.add(LITERAL);
+            literals.add(literal.toString());
+        }
+
+        int[] kindArray = new int[kinds.size()];
+        for (int k = 0; k < kindArray.length; k++) {
+            kindArray[k] = kinds.get(k);
+        }
+        return new LogTemplate(format, kindArray, literals.toArray(new String[0]));
+    }
+
+    private static int placeholderAt(String format, int index) {
+        for (int kind = TIME; kind <= MESSAGE; kind++) {
+            if (format.startsWith(PLACEHOLDERS[kind], index)) {
+                return kind;
+            }
+        }
+        return LITERAL;
+    }
+
+    // 把一行日志渲染进调用方提供的缓冲区
+    public void render(StringBuilder out, String time, LogEvent event) {
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case TIME:
+                    out.append(time);
+                    break;
+                case LEVEL:
+                    out.append(event.getLevel());
+                    break;
+                case MESSAGE:
+                    event.appendText(out);
+                    break;
+                default:
+                    out.append(literals[i]);
+                    break;
+            }
+        }
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,94 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// 控制台镜像的预过滤：log-level 和按日志器名称前缀的包含/排除列表，加载配置时编译一次
+// 级别只比较整数；名称判断的结果按日志器名缓存，日志器数量有限，之后每条记录只有一次哈希查找
+public final class LoggerFilter {
+
+    // 缓存的日志器名数量上限，超出后不再缓存，直接逐个前缀比较
+    private static final int MAX_CACHED_NAMES = 1024;
+
+    private final Level level;
+    private final int levelValue;
+    private final String[] includes;
+    private final String[] excludes;
+    private final Map<String, Boolean> names = new ConcurrentHashMap<>();
+
+    public LoggerFilter(String level, List<String> includes, List<String> excludes, Logger logger) {
+        this.level = parseLevel(level, logger);
+        this.levelValue = this.level.intValue();
+        this.includes = prefixes(includes);
+        this.excludes = prefixes(excludes);
+    }
+
+    private static Level parseLevel(String name, Logger logger) {
+        if (name == null || name.trim().isEmpty()) {
+            return Level.ALL;
+        }
+        try {
+            return Level.parse(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warning("无效的日志级别: " + name + "，使用 ALL");
+            return Level.ALL;
+        }
+    }
+
+    private static String[] prefixes(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.trim().isEmpty()) {
+                    result.add(value.trim());
+                }
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public boolean isLoggable(LogRecord record) {
+        if (record.getLevel().intValue() < levelValue) return false;
+        if (includes.length == 0 && excludes.length == 0) return true;
+
+        String name = record.getLoggerName() != null ? record.getLoggerName() : "";
+        Boolean cached = names.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        boolean accepted = accepts(name);
+        if (names.size() < MAX_CACHED_NAMES) {
+            names.put(name, accepted);
+        }
+        return accepted;
+    }
+
+    // 排除优先；设置了包含列表时只接受匹配的日志器
+    private boolean accepts(String name) {
+        for (String prefix : excludes) {
+            if (matches(name, prefix)) return false;
+        }
+        if (includes.length == 0) return true;
+        for (String prefix : includes) {
+            if (matches(name, prefix)) return true;
+        }
+        return false;
+    }
+
+    // 按名称层级匹配："com.example" 匹配 com.example 和 com.example.sub，不匹配 com.examples
+    private static boolean matches(String name, String prefix) {
+        return name.startsWith(prefix)
+                && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.'
+                || prefix.endsWith("."));
+    }
+}
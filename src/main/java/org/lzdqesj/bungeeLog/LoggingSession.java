@@ -0,0 +1,97 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+import net.md_5.bungee.api.scheduler.ScheduledTask;
+
+// 一次日志系统初始化的全部资源：写入器、外部输出、限流状态、根日志处理器和定时任务
+// 重载时整体替换，旧会话的处理器和任务随 close() 一起移除，不会随重载次数累积
+public class LoggingSession {
+
+    private final BungeeLog plugin;
+    private final AsyncLogWriter writer;
+    private final SinkRegistry sinks;
+    private final EventThrottle throttle;
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private LogHandler handler;
+    private boolean closed;
+
+    public LoggingSession(BungeeLog plugin, AsyncLogWriter writer, SinkRegistry sinks, EventThrottle throttle) {
+        this.plugin = plugin;
+        this.writer = writer;
+        this.sinks = sinks;
+        this.throttle = throttle;
+    }
+
+    // 在根日志器上安装控制台镜像处理器
+    public synchronized void installConsoleMirror(LoggerFilter filter) {
+        if (closed || handler != null) return;
+
+        Logger root = Logger.getLogger("");
+        // 清理之前遗留的处理器（例如异常退出未能正常关闭的旧会话）
+        for (Handler existing : root.getHandlers()) {
+            if (existing instanceof LogHandler && ((LogHandler) existing).getSession() != this
+                    && !((LogHandler) existing).getSession().isCurrent()) {
+                root.removeHandler(existing);
+            }
+        }
+
+        handler = new LogHandler(plugin, this, filter);
+        handler.setFormatter(new LogFormatter(plugin));
+        root.addHandler(handler);
+    }
+
+    // 注册随会话生命周期结束而取消的定时任务
+    public synchronized void schedule(Runnable task, long period, TimeUnit unit) {
+        if (closed) return;
+        tasks.add(plugin.getProxy().getScheduler().schedule(plugin, task, period, period, unit));
+    }
+
+    // 只有当前生效的会话才会实际处理日志，切换期间新旧处理器不会重复写入
+    public boolean isCurrent() {
+        return plugin.getLoggingSession() == this;
+    }
+
+    public AsyncLogWriter getWriter() {
+        return writer;
+    }
+
+    public SinkRegistry getSinks() {
+        return sinks;
+    }
+
+    public EventThrottle getThrottle() {
+        return throttle;
+    }
+
+    public synchronized int getTaskCount() {
+        return tasks.size();
+    }
+
+    // 移除处理器、取消任务并排空写入器，写入器退出后不会再有新事件进入外部输出
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+
+            if (handler != null) {
+                Logger.getLogger("").removeHandler(handler);
+                handler = null;
+            }
+            for (ScheduledTask task : tasks) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+        // 尚未汇总的抑制数量写入当前会话，不随重载丢失
+        if (throttle.isEnabled()) {
+            throttle.sweep(true);
+        }
+        writer.close();
+        sinks.close();
+    }
+}
@@ -0,0 +1,111 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// 基于内存映射的追加分段（log-sink: mmap）
+// 分段按固定大小预分配，写入只是一次内存拷贝，落盘由 force() 按间隔完成
+public class MappedSegmentOutput implements SegmentOutput {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long syncIntervalMillis;
+    private long lastSync = System.currentTimeMillis();
+    private boolean dirty;
+
+    public MappedSegmentOutput(File target, int segmentBytes, long syncIntervalMillis) throws IOException {
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.file = new RandomAccessFile(target, "rw");
+        this.channel = file.getChannel();
+
+        long existing = channel.size();
+        int capacity = (int) Math.max(segmentBytes, Math.min(existing, Integer.MAX_VALUE));
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        // 异常退出时文件保持预分配长度，尾部是 0，从最后一个非 0 字节之后继续写
+        int end = (int) Math.min(existing, capacity);
+        while (end > 0 && buffer.get(end - 1) == 0) {
+            end--;
+        }
+        buffer.position(end);
+    }
+
+    @Override
+    public int write(byte[] bytes, int offset, int length) {
+        int accepted = Math.min(length, buffer.remaining());
+        buffer.put(bytes, offset, accepted);
+        dirty |= accepted > 0;
+        return accepted;
+    }
+
+    @Override
+    public long size() {
+        return buffer.position();
+    }
+
+    @Override
+    public boolean isFull() {
+        return !buffer.hasRemaining();
+    }
+
+    @Override
+    public boolean fits(int length) {
+        return length <= buffer.remaining();
+    }
+
+    // 写入内容已在页缓存中，这里只按间隔强制同步到磁盘
+    @Override
+    public void flush() {
+        long now = System.currentTimeMillis();
+        if (dirty && now - lastSync >= syncIntervalMillis) {
+            buffer.force();
+            lastSync = now;
+            dirty = false;
+        }
+    }
+
+    // 截断前必须先解除映射：映射仍然有效时截断，再访问被截掉的页会触发 SIGBUS，Windows 上截断本身也会失败
+    @Override
+    public void close() throws IOException {
+        try {
+            buffer.force();
+            int end = buffer.position();
+            unmap(buffer);
+            // 截掉预分配但未使用的尾部，保持普通日志文件的样子
+            channel.truncate(end);
+        } finally {
+            channel.close();
+            file.close();
+        }
+    }
+
+    // 立即释放映射，而不是等到缓冲区被回收；Java 9+ 用 Unsafe.invokeCleaner，Java 8 调用 DirectByteBuffer 的 cleaner
+    // 都不可用时保持映射，截断在 Linux 上仍然安全（之后不再访问这个缓冲区）
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+        }
+    }
+}
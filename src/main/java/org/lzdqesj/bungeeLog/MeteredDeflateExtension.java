@@ -0,0 +1,36 @@
+package org.lzdqesj.bungeeLog;
+
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.Framedata;
+
+// permessage-deflate 扩展，额外统计压缩前后的字节数和耗时
+// 每个连接握手时通过 copyInstance 得到独立实例，计数汇总到同一个 WebSocketStats
+public class MeteredDeflateExtension extends PerMessageDeflateExtension {
+
+    private final WebSocketStats stats;
+    private final int threshold;
+
+    public MeteredDeflateExtension(WebSocketStats stats, int threshold) {
+        this.stats = stats;
+        this.threshold = threshold;
+        setThreshold(threshold);
+    }
+
+    @Override
+    public void encodeFrame(Framedata inputFrame) {
+        int before = inputFrame.getPayloadData().remaining();
+        long start = System.nanoTime();
+        super.encodeFrame(inputFrame);
+        int after = inputFrame.getPayloadData().remaining();
+        // 低于阈值的帧原样发送，不计入
+        if (after != before) {
+            stats.recordCompression(before, after, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        return new MeteredDeflateExtension(stats, threshold);
+    }
+}
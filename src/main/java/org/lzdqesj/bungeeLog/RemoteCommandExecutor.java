@@ -0,0 +1,360 @@
+package org.lzdqesj.bungeeLog;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+
+// WebSocket 远程命令的执行器：命令在有界的工作线程池中执行，不占用 WebSocket 网络线程
+// 每个客户端有并发上限和令牌桶限速；命令的输出（发给执行者的消息和执行线程上产生的日志）按请求 id 逐行回传，
+// 超时后立即回复 timeout，之后的输出和结果都不再发送
+public class RemoteCommandExecutor {
+
+    // 单条命令最多回传的输出行数，超出部分只在结果中标记 truncated
+    private static final int MAX_OUTPUT_LINES = 1000;
+
+    // 命令状态，由 RemoteCommand 的锁保护
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int TIMED_OUT = 3;
+
+    // 当前工作线程正在执行的命令，供日志捕获处理器使用
+    private static final ThreadLocal<RemoteCommand> CURRENT = new ThreadLocal<>();
+
+    private final BungeeLog plugin;
+    private final ThreadPoolExecutor workers;
+    // 超时检查借用 WebSocket 服务器的定时线程
+    private final ScheduledExecutorService timer;
+    private final int maxPerClient;
+    private final double rate;
+    private final int burst;
+    private final long timeoutMillis;
+    private final Map<ClientSession, Quota> quotas = new ConcurrentHashMap<>();
+    private final Handler captureHandler = new CaptureHandler();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public RemoteCommandExecutor(BungeeLog plugin, LogSettings settings, ScheduledExecutorService timer) {
+        this.plugin = plugin;
+        this.timer = timer;
+        this.maxPerClient = Math.max(1, settings.getWebapiCommandConcurrency());
+        this.rate = settings.getWebapiCommandRate();
+        this.burst = Math.max(1, settings.getWebapiCommandBurst());
+        this.timeoutMillis = Math.max(100L, settings.getWebapiCommandTimeout());
+
+        int threads = Math.max(1, settings.getWebapiCommandThreads());
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getWebapiCommandQueue())), r -> {
+                    Thread thread = new Thread(r, "BungeeLog-Command-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+
+        // 挂在根日志器上，只转发命令执行线程上产生的记录，其他线程的记录直接忽略
+        Logger.getLogger("").addHandler(captureHandler);
+    }
+
+    // 提交一条命令，拒绝时直接回复 rejected 和原因
+    public void submit(ClientSession session, String id, String command) {
+        Quota quota = quotas.computeIfAbsent(session, s -> new Quota());
+        String reason = quota.tryAcquire();
+        if (reason != null) {
+            rejected.incrementAndGet();
+            reply(session, id, command, "rejected", reason, -1, false, -1);
+            return;
+        }
+
+        RemoteCommand task = new RemoteCommand(session, quota, id, command);
+        task.timeout = timer.schedule(task::expire, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            task.future = workers.submit(task);
+        } catch (RejectedExecutionException e) {
+            task.timeout.cancel(false);
+            quota.release();
+            rejected.incrementAndGet();
+            reply(session, id, command, "rejected", "queue-full", -1, false, -1);
+        }
+    }
+
+    // 客户端断开时释放它的配额，仍在执行的命令结束后不再回复
+    public void forget(ClientSession session) {
+        quotas.remove(session);
+    }
+
+    public void shutdown() {
+        Logger.getLogger("").removeHandler(captureHandler);
+        workers.shutdownNow();
+    }
+
+    // {"type":"command","id":"...","command":"...","status":"..."}，结果帧附带输出行数和耗时
+    // 经会话的发送锁发出，不与推送线程同时使用连接的压缩上下文
+    private static void reply(ClientSession session, String id, String command, String status, String message,
+                              int lines, boolean truncated, long millis) {
+        if (!session.getConnection().isOpen()) return;
+
+        StringBuilder out = new StringBuilder(128);
+        JsonWriter json = new JsonWriter(out).beginObject()
+                .field("type", "command")
+                .field("id", id)
+                .field("command", command)
+                .field("status", status);
+        if (message != null) {
+            json.field("message", message);
+        }
+        if (lines >= 0) {
+            json.field("lines", lines).field("truncated", truncated);
+        }
+        if (millis >= 0) {
+            json.field("time", millis);
+        }
+        json.endObject();
+        session.send(out.toString());
+    }
+
+    public long getExecutedCount() {
+        return executed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    // 单个客户端的并发计数和限速
+    private final class Quota {
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final TokenBucket bucket = rate > 0 ? new TokenBucket(rate, burst) : null;
+
+        // 返回拒绝原因，null 表示已占用一个名额
+        String tryAcquire() {
+            if (running.incrementAndGet() > maxPerClient) {
+                running.decrementAndGet();
+                return "too-many-commands";
+            }
+            if (bucket != null && !bucket.tryAcquire(System.nanoTime())) {
+                running.decrementAndGet();
+                return "rate-limited";
+            }
+            return null;
+        }
+
+        void release() {
+            running.decrementAndGet();
+        }
+    }
+
+    private final class RemoteCommand implements Runnable {
+
+        private final ClientSession session;
+        private final Quota quota;
+        private final String id;
+        private final String command;
+        private final long submittedAt = System.nanoTime();
+        private volatile Future<?> future;
+        private volatile ScheduledFuture<?> timeout;
+
+        private int state = QUEUED;
+        private int lines;
+        private boolean truncated;
+
+        RemoteCommand(ClientSession session, Quota quota, String id, String command) {
+            this.session = session;
+            this.quota = quota;
+            this.id = id;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (state != QUEUED) return;
+                state = RUNNING;
+            }
+
+            boolean found = false;
+            Exception failure = null;
+            CURRENT.set(this);
+            try {
+                found = plugin.getProxy().getPluginManager().dispatchCommand(sender(), command);
+            } catch (Exception e) {
+                failure = e;
+            } finally {
+                CURRENT.remove();
+                quota.release();
+            }
+
+            int outputLines;
+            boolean outputTruncated;
+            synchronized (this) {
+                if (state != RUNNING) return;
+                state = DONE;
+                outputLines = lines;
+                outputTruncated = truncated;
+            }
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submittedAt);
+            if (failure != null) {
+                failed.incrementAndGet();
+                plugin.getDiagnostics().warning("远程命令执行失败: " + command + " - " + failure.getMessage());
+                reply(session, id, command, "error", String.valueOf(failure.getMessage()), outputLines, outputTruncated,
+                        millis);
+            } else {
+                executed.incrementAndGet();
+                reply(session, id, command, found ? "success" : "unknown", null, outputLines, outputTruncated, millis);
+            }
+        }
+
+        // 超时：还在排队的直接取消并归还名额，正在执行的中断工作线程，名额在命令真正结束时归还
+        void expire() {
+            boolean queued;
+            int outputLines;
+            boolean outputTruncated;
+            synchronized (this) {
+                if (state == DONE || state == TIMED_OUT) return;
+                queued = state == QUEUED;
+                state = TIMED_OUT;
+                outputLines = lines;
+                outputTruncated = truncated;
+            }
+            Future<?> running = future;
+            if (running != null) {
+                running.cancel(!queued);
+            }
+            if (queued) {
+                quota.release();
+            }
+            timedOut.incrementAndGet();
+            plugin.getDiagnostics().warning("远程命令执行超时: " + command);
+            reply(session, id, command, "timeout", null, outputLines, outputTruncated, timeoutMillis);
+        }
+
+        synchronized void output(String line) {
+            if (state != RUNNING) return;
+            if (lines >= MAX_OUTPUT_LINES) {
+                truncated = true;
+                return;
+            }
+            lines++;
+            if (!session.getConnection().isOpen()) return;
+
+            StringBuilder out = new StringBuilder(64 + line.length());
+            new JsonWriter(out).beginObject()
+                    .field("type", "command")
+                    .field("id", id)
+                    .field("status", "output")
+                    .field("line", line)
+                    .endObject();
+            session.send(out.toString());
+        }
+
+        // 以控制台身份执行，权限等查询转给控制台，发给执行者的消息改为回传给客户端
+        private CommandSender sender() {
+            CommandSender console = plugin.getProxy().getConsole();
+            return (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(),
+                    new Class<?>[]{CommandSender.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "sendMessage":
+                            case "sendMessages":
+                                for (Object arg : args) {
+                                    capture(arg);
+                                }
+                                return null;
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return "BungeeLog-WebSocket";
+                            default:
+                                try {
+                                    return method.invoke(console, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                        }
+                    });
+        }
+
+        private void capture(Object message) {
+            if (message instanceof String) {
+                output(ChatColor.stripColor((String) message));
+            } else if (message instanceof String[]) {
+                for (String line : (String[]) message) {
+                    output(ChatColor.stripColor(line));
+                }
+            } else if (message instanceof BaseComponent) {
+                output(((BaseComponent) message).toPlainText());
+            } else if (message instanceof BaseComponent[]) {
+                output(TextComponent.toPlainText((BaseComponent[]) message));
+            }
+        }
+    }
+
+    // 把命令执行线程上产生的日志记录也作为输出回传，插件自身的诊断消息除外
+    private static final class CaptureHandler extends Handler {
+
+        private final SimpleFormatter formatter = new SimpleFormatter();
+
+        @Override
+        public void publish(LogRecord record) {
+            RemoteCommand command = CURRENT.get();
+            if (command == null || SelfDiagnostics.isDiagnostic(record)) return;
+
+            String message = ChatColor.stripColor(formatter.formatMessage(record));
+            command.output(record.getLevel() == Level.INFO ? message : "[" + record.getLevel() + "] " + message);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
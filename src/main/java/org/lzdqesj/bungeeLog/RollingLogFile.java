@@ -0,0 +1,301 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// 滚动日志文件：按日期或文件大小切分为编号分段，已关闭的分段在低优先级后台线程中 gzip 压缩
+public class RollingLogFile implements Closeable {
+
+    private final BungeeLog plugin;
+    private final File logsDir;
+    private final boolean dailyRolling;
+    private final long maxFileBytes;
+    private final boolean compress;
+    private final int maxLogFiles;
+    private final long maxTotalBytes;
+    private final long maxAgeMillis;
+    private final boolean mapped;
+    private final int mmapSegmentBytes;
+    private final long mmapSyncInterval;
+    private final boolean indexed;
+    private final int indexBlockLines;
+    private final ExecutorService compressor;
+
+    private SegmentOutput out;
+    private LogIndexWriter indexWriter;
+    private volatile File currentFile;
+    private String currentDate;
+    private int index;
+    // 重载后由新会话接手，关闭时压缩当前分段
+    private volatile boolean superseded;
+
+    // previous 为仍在由旧会话写入的分段，重载时传入：新会话从新分段开始，两个写入器不会写同一个文件
+    public RollingLogFile(BungeeLog plugin, File logsDir, LogSettings settings, File previous) throws IOException {
+        this.plugin = plugin;
+        this.logsDir = logsDir;
+        this.dailyRolling = settings.isDailyRolling();
+        this.maxFileBytes = settings.getMaxLogFileBytes();
+        this.compress = settings.isCompressLogs();
+        this.maxLogFiles = settings.getMaxLogFiles();
+        this.maxTotalBytes = settings.getMaxLogTotalBytes();
+        this.maxAgeMillis = settings.getMaxLogAgeMillis();
+        this.mapped = settings.getLogSink() == LogSettings.SinkType.MMAP;
+        this.mmapSegmentBytes = settings.getMmapSegmentBytes();
+        this.mmapSyncInterval = settings.getMmapSyncInterval();
+        this.indexed = settings.isLogIndex();
+        this.indexBlockLines = settings.getIndexBlockLines();
+        this.compressor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(() -> {
+                SelfDiagnostics.mute();
+                r.run();
+            }, "BungeeLog-Compressor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        if (!logsDir.exists()) {
+            logsDir.mkdirs();
+        }
+
+        currentDate = LocalDate.now().toString();
+        index = previous != null ? nextIndex(currentDate) : resumeIndex(currentDate);
+        open();
+
+        // 上次运行遗留的未压缩分段，以及保留策略；旧会话的分段由它自己关闭时压缩
+        compressor.execute(() -> {
+            if (compress) {
+                for (File file : listSegments()) {
+                    if (file.getName().endsWith(".log") && !file.equals(currentFile) && !file.equals(previous)) {
+                        gzip(file);
+                    }
+                }
+            }
+            applyRetention();
+        });
+    }
+
+    // 写入一段已编码的字节，写满时切换到下一个分段
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        write(bytes, offset, length, null);
+    }
+
+    // 写入一行日志并记入当前分段的索引，event 为 null 时不建索引
+    // 当前分段放不下整行时先切换，一行不会跨两个文件；只有比整个空分段还大的行才会被拆开
+    public void write(byte[] bytes, int offset, int length, LogEvent event) throws IOException {
+        if (out.size() > 0 && !out.fits(length)) {
+            roll(currentDate);
+        }
+        if (indexWriter != null && event != null) {
+            indexWriter.add(out.size(), length, event);
+        }
+        while (length > 0) {
+            int written = out.write(bytes, offset, length);
+            offset += written;
+            length -= written;
+            if (out.isFull() || (maxFileBytes > 0 && out.size() >= maxFileBytes)) {
+                roll(currentDate);
+            }
+        }
+    }
+
+    // 按时间检查是否需要切换到新日期的分段
+    public void rollIfNeeded() throws IOException {
+        if (!dailyRolling) return;
+
+        String today = LocalDate.now().toString();
+        if (!today.equals(currentDate)) {
+            roll(today);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+        if (indexWriter != null) {
+            indexWriter.flush();
+        }
+    }
+
+    private void roll(String date) throws IOException {
+        closeSegment();
+        File closed = currentFile;
+
+        if (date.equals(currentDate)) {
+            index++;
+        } else {
+            currentDate = date;
+            index = resumeIndex(date);
+        }
+        open();
+
+        // 压缩和清理放到后台，写入线程不等待
+        compressor.execute(() -> {
+            if (compress) {
+                gzip(closed);
+            }
+            applyRetention();
+        });
+    }
+
+    private void open() throws IOException {
+        currentFile = segmentFile(currentDate, index);
+        out = mapped
+                ? new MappedSegmentOutput(currentFile, mmapSegmentBytes, mmapSyncInterval)
+                : new StreamSegmentOutput(currentFile);
+        if (indexed) {
+            try {
+                indexWriter = new LogIndexWriter(LogIndexWriter.indexFileFor(currentFile), indexBlockLines);
+            } catch (IOException e) {
+                // 索引只是加速查询，打不开时照常写日志
+                indexWriter = null;
+                plugin.getDiagnostics().warning("无法打开日志索引: " + currentFile.getName() + " - " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        try {
+            out.close();
+        } finally {
+            if (indexWriter != null) {
+                try {
+                    indexWriter.close();
+                } catch (IOException e) {
+                    plugin.getDiagnostics().warning("关闭日志索引失败: " + e.getMessage());
+                }
+                indexWriter = null;
+            }
+        }
+    }
+
+    // 找到当天应继续写入的分段编号：沿用最后一个未压缩且未写满的分段，否则新开一个
+    private int resumeIndex(String date) {
+        int last = nextIndex(date) - 1;
+        if (last < 0) {
+            return 0;
+        }
+
+        // 内存映射分段异常退出时保持预分配长度，由 MappedSegmentOutput 自行找到有效末尾
+        File file = segmentFile(date, last);
+        if (file.exists() && (mapped || maxFileBytes <= 0 || file.length() < maxFileBytes)) {
+            return last;
+        }
+        return last + 1;
+    }
+
+    // 当天第一个尚未使用的分段编号
+    private int nextIndex(String date) {
+        int next = 0;
+        while (segmentFile(date, next).exists() || gzipFile(segmentFile(date, next)).exists()) {
+            next++;
+        }
+        return next;
+    }
+
+    private File segmentFile(String date, int segment) {
+        String base = dailyRolling ? "bungee-" + date : "bungee";
+        return new File(logsDir, segment == 0 ? base + ".log" : base + "." + segment + ".log");
+    }
+
+    private static File gzipFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".gz");
+    }
+
+    private void gzip(File file) {
+        if (!file.exists()) return;
+
+        File target = gzipFile(file);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file));
+             OutputStream gz = new GZIPOutputStream(new FileOutputStream(target), 64 * 1024)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                gz.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            plugin.getDiagnostics().warning("压缩日志文件失败: " + file.getName() + " - " + e.getMessage());
+            target.delete();
+            return;
+        }
+        target.setLastModified(file.lastModified());
+        file.delete();
+    }
+
+    // 列出所有日志分段（含已压缩的），按修改时间从新到旧排序
+    private List<File> listSegments() {
+        File[] files = logsDir.listFiles((dir, name) -> name.startsWith("bungee")
+                && (name.endsWith(".log") || name.endsWith(".log.gz")));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    // 按数量、总大小和保留天数清理旧日志
+    private void applyRetention() {
+        try {
+            long now = System.currentTimeMillis();
+            long totalBytes = 0;
+            int kept = 0;
+
+            for (File file : listSegments()) {
+                long length = file.length();
+                if (file.equals(currentFile)) {
+                    totalBytes += length;
+                    kept++;
+                    continue;
+                }
+
+                boolean tooMany = maxLogFiles > 0 && kept >= maxLogFiles;
+                boolean tooLarge = maxTotalBytes > 0 && totalBytes + length > maxTotalBytes;
+                boolean tooOld = maxAgeMillis > 0 && now - file.lastModified() > maxAgeMillis;
+
+                if (tooMany || tooLarge || tooOld) {
+                    file.delete();
+                    LogIndexWriter.indexFileFor(file).delete();
+                } else {
+                    totalBytes += length;
+                    kept++;
+                }
+            }
+        } catch (Exception e) {
+            plugin.getDiagnostics().warning("清理旧日志文件失败: " + e.getMessage());
+        }
+    }
+
+    public File getCurrentFile() {
+        return currentFile;
+    }
+
+    // 重载时标记旧会话的文件，新会话已切换到新分段，这里的当前分段关闭后不会再续写
+    public void supersede() {
+        superseded = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeSegment();
+            if (superseded && compress) {
+                File closed = currentFile;
+                compressor.execute(() -> gzip(closed));
+            }
+        } finally {
+            // 已提交的压缩任务继续完成，但不再接受新任务
+            compressor.shutdown();
+            try {
+                compressor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
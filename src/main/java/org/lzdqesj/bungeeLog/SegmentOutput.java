@@ -0,0 +1,22 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// 单个日志分段的底层输出方式，由 log-sink 选择
+public interface SegmentOutput extends Closeable {
+
+    // 写入字节，返回实际接受的字节数（分段写满时可能少于 length）
+    int write(byte[] bytes, int offset, int length) throws IOException;
+
+    // 分段当前的有效字节数
+    long size();
+
+    // 分段是否已经写满，需要切换到下一个分段
+    boolean isFull();
+
+    // 剩余空间能否容纳 length 字节
+    boolean fits(int length);
+
+    void flush() throws IOException;
+}
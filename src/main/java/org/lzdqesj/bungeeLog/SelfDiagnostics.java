@@ -0,0 +1,150 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+// 插件自身的诊断通道：写入失败、外部输出熔断、WebSocket 连接等内部消息只输出到控制台，不经过控制台镜像
+// 镜像处理器按日志器名识别这里产生的记录并跳过，内部故障不会写回日志文件再广播出去形成自我放大
+//
+// 另外用线程局部标记阻断回环：镜像处理器转发期间以及写入线程、外部输出线程上产生的记录都不再进入镜像，
+// 否则写入线程上的一条警告会重新进入它自己消费的环形缓冲区
+public class SelfDiagnostics {
+
+    // 诊断记录的日志器名，镜像处理器据此跳过
+    public static final String LOGGER_NAME = "org.lzdqesj.bungeeLog.diagnostics";
+
+    // 每个窗口最多输出的诊断条数，超出部分只计数，下个窗口开始时汇总一条
+    // 严重错误单独计数，连接、认证等大量的普通消息不会把写入失败这类错误挤掉
+    private static final int WINDOW_LIMIT = 20;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // 当前线程产生的记录不进入镜像
+    private static final ThreadLocal<boolean[]> MUTED = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private final BungeeLog plugin;
+    private final Logger logger;
+
+    private final Window routine = new Window();
+    private final Window severe = new Window();
+
+    private final AtomicLong warnings = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong loopsBlocked = new AtomicLong();
+    private volatile String lastProblem;
+
+    public SelfDiagnostics(BungeeLog plugin) {
+        this.plugin = plugin;
+        // 挂在插件日志器下，沿用控制台的输出处理器
+        this.logger = Logger.getLogger(LOGGER_NAME);
+        this.logger.setParent(plugin.getLogger());
+    }
+
+    public static boolean isDiagnostic(LogRecord record) {
+        return LOGGER_NAME.equals(record.getLoggerName());
+    }
+
+    // 设置当前线程的镜像屏蔽标记，返回之前的值供 restore 恢复
+    public static boolean mute() {
+        boolean[] muted = MUTED.get();
+        boolean previous = muted[0];
+        muted[0] = true;
+        return previous;
+    }
+
+    public static void restore(boolean previous) {
+        MUTED.get()[0] = previous;
+    }
+
+    public static boolean isMuted() {
+        return MUTED.get()[0];
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public void warning(String message) {
+        warnings.incrementAndGet();
+        lastProblem = message;
+        log(Level.WARNING, message);
+    }
+
+    public void severe(String message) {
+        errors.incrementAndGet();
+        lastProblem = message;
+        log(Level.SEVERE, message);
+    }
+
+    // 逐条消息等调试信息，控制台默认不显示
+    public void fine(String message) {
+        log(Level.FINE, message);
+    }
+
+    // 需要留在日志文件中的审计信息（认证、远程命令），直接写入一次，不依赖镜像
+    public void audit(String message) {
+        info(message);
+        plugin.writeLog("INFO", message);
+    }
+
+    // 镜像处理器在同一线程上被重入时调用
+    void loopBlocked() {
+        loopsBlocked.incrementAndGet();
+    }
+
+    private void log(Level level, String message) {
+        if (!logger.isLoggable(level)) return;
+
+        Window window = level == Level.SEVERE ? severe : routine;
+        int flushed = 0;
+        synchronized (window) {
+            long now = System.nanoTime();
+            if (now - window.start >= WINDOW_NANOS) {
+                flushed = window.suppressed;
+                window.start = now;
+                window.count = 0;
+                window.suppressed = 0;
+            }
+            if (window.count >= WINDOW_LIMIT) {
+                window.suppressed++;
+                suppressed.incrementAndGet();
+                return;
+            }
+            window.count++;
+        }
+        if (flushed > 0) {
+            logger.log(Level.WARNING, "[BungeeLog] 诊断消息过多，已省略 " + flushed + " 条");
+        }
+        logger.log(level, "[BungeeLog] " + message);
+    }
+
+    // 单个限流窗口的计数，由自身加锁
+    private static final class Window {
+        private long start = System.nanoTime();
+        private int count;
+        private int suppressed;
+    }
+
+    public long getWarningCount() {
+        return warnings.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    public long getLoopsBlocked() {
+        return loopsBlocked.get();
+    }
+
+    public String getLastProblem() {
+        return lastProblem;
+    }
+}
@@ -0,0 +1,189 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 单个外部输出的投递管道：独立的有界队列和线程，批量写入，失败按退避重试，连续失败后熔断
+// 写入线程只做非阻塞的 offer，某个输出卡住时只会在它自己的队列里丢弃，不影响其他输出和事件线程
+public class SinkPipeline {
+
+    // 熔断器状态
+    public enum State {
+        CLOSED,     // 正常投递
+        OPEN,       // 熔断中，直接丢弃
+        HALF_OPEN   // 冷却结束，试探投递一批
+    }
+
+    private final BungeeLog plugin;
+    private final SinkSettings settings;
+    private final LogSink sink;
+    private final ArrayBlockingQueue<EventRecord> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private int consecutiveFailures;
+    private volatile String lastError;
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    public SinkPipeline(BungeeLog plugin, SinkSettings settings, LogSink sink) {
+        this.plugin = plugin;
+        this.settings = settings;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, settings.getQueueSize()));
+
+        this.thread = new Thread(this::run, "BungeeLog-Sink-" + settings.getName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // 是否需要这个事件，在复制事件之前判断
+    public boolean accepts(LogEvent event) {
+        return settings.getFilter().matches(event, event.getType().isPlayerEvent());
+    }
+
+    // 非阻塞投递，队列已满或熔断中时丢弃并计数
+    public boolean offer(EventRecord record) {
+        if (!running || (state == State.OPEN && !cooldownElapsed()) || !queue.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean cooldownElapsed() {
+        return System.currentTimeMillis() - openedAt >= settings.getBreakerCooldown();
+    }
+
+    private void run() {
+        SelfDiagnostics.mute();
+        List<EventRecord> batch = new ArrayList<>(Math.max(1, settings.getBatchSize()));
+        while (running || !queue.isEmpty()) {
+            EventRecord first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) continue;
+
+            batch.add(first);
+            queue.drainTo(batch, Math.max(0, settings.getBatchSize() - 1));
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<EventRecord> batch) {
+        if (state == State.OPEN) {
+            if (!cooldownElapsed()) {
+                dropped.addAndGet(batch.size());
+                return;
+            }
+            state = State.HALF_OPEN;
+        }
+
+        // 试探阶段只尝试一次
+        int attempts = state == State.HALF_OPEN ? 1 : Math.max(0, settings.getMaxRetries()) + 1;
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            try {
+                sink.write(batch);
+                delivered.addAndGet(batch.size());
+                consecutiveFailures = 0;
+                if (state != State.CLOSED) {
+                    state = State.CLOSED;
+                    plugin.getDiagnostics().info("日志输出 " + settings.getName() + " 已恢复");
+                }
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+            }
+
+            if (attempt + 1 < attempts) {
+                if (!running || !sleep(settings.getRetryBackoff() << Math.min(attempt, 10))) break;
+                retries.incrementAndGet();
+            }
+        }
+
+        failedBatches.incrementAndGet();
+        dropped.addAndGet(batch.size());
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= Math.max(1, settings.getBreakerThreshold())) {
+            boolean opening = state != State.OPEN;
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            if (opening) {
+                // 只在状态切换时记录，避免输出持续故障时刷屏
+                plugin.getDiagnostics().warning("日志输出 " + settings.getName() + " 连续失败，暂停 "
+                        + settings.getBreakerCooldown() + " 毫秒: " + lastError);
+            }
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    // 停止接收新事件，给队列中剩余的事件一点时间投递，然后关闭输出
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+        try {
+            sink.close();
+        } catch (Exception e) {
+            plugin.getDiagnostics().warning("关闭日志输出 " + settings.getName() + " 失败: " + e.getMessage());
+        }
+    }
+
+    public String getName() {
+        return settings.getName();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,72 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 按 sinks 配置创建的外部输出集合，由写入线程在落盘后调用 dispatch 分发
+// 输出类型通过 register 注册，内置 syslog；其他插件可以注册自己的类型后在配置中使用
+public class SinkRegistry {
+
+    private static final Map<String, LogSink.Factory> FACTORIES = new ConcurrentHashMap<>();
+
+    static {
+        register("syslog", SyslogSink::new);
+    }
+
+    public static void register(String type, LogSink.Factory factory) {
+        FACTORIES.put(type.toLowerCase(Locale.ROOT), factory);
+    }
+
+    private final SinkPipeline[] pipelines;
+    // 分发序号，只由写入线程递增
+    private long sequence;
+
+    public SinkRegistry(BungeeLog plugin, List<SinkSettings> sinks) {
+        List<SinkPipeline> created = new ArrayList<>();
+        for (SinkSettings settings : sinks) {
+            if (!settings.isEnabled()) continue;
+
+            LogSink.Factory factory = FACTORIES.get(settings.getType().toLowerCase(Locale.ROOT));
+            if (factory == null) {
+                plugin.getDiagnostics().warning("未知的日志输出类型: " + settings.getType() + " (" + settings.getName() + ")");
+                continue;
+            }
+            try {
+                created.add(new SinkPipeline(plugin, settings, factory.create(plugin, settings)));
+            } catch (Exception e) {
+                plugin.getDiagnostics().warning("无法创建日志输出 " + settings.getName() + ": " + e.getMessage());
+            }
+        }
+        this.pipelines = created.toArray(new SinkPipeline[0]);
+    }
+
+    // 只分发写入日志文件的事件；有输出需要时才复制一次，所有输出共享同一个副本
+    public void dispatch(LogEvent event) {
+        if (pipelines.length == 0 || !event.isLogged()) return;
+
+        EventRecord record = null;
+        for (SinkPipeline pipeline : pipelines) {
+            if (pipeline.accepts(event)) {
+                if (record == null) {
+                    record = EventRecord.of(++sequence, event, false);
+                }
+                pipeline.offer(record);
+            }
+        }
+    }
+
+    public List<SinkPipeline> getPipelines() {
+        return Collections.unmodifiableList(Arrays.asList(pipelines));
+    }
+
+    public void close() {
+        for (SinkPipeline pipeline : pipelines) {
+            pipeline.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.lzdqesj.bungeeLog;
+
+import net.md_5.bungee.config.Configuration;
+
+// sinks 配置中单个输出的设置：通用的队列、重试和熔断参数在加载时解析，类型特有的选项由工厂从 options 读取
+public final class SinkSettings {
+
+    private final String name;
+    private final String type;
+    private final boolean enabled;
+    private final int queueSize;
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryBackoff;
+    private final int breakerThreshold;
+    private final long breakerCooldown;
+    private final Subscription filter;
+    private final Configuration options;
+
+    public SinkSettings(String name, Configuration section) {
+        this.name = name;
+        this.type = section.getString("type", name);
+        this.enabled = section.getBoolean("enabled", true);
+        this.queueSize = section.getInt("queue-size", 4096);
+        this.batchSize = section.getInt("batch-size", 128);
+        this.maxRetries = section.getInt("max-retries", 3);
+        this.retryBackoff = section.getLong("retry-backoff", 500L);
+        this.breakerThreshold = section.getInt("breaker-threshold", 5);
+        this.breakerCooldown = section.getLong("breaker-cooldown", 30000L);
+        this.filter = Subscription.compile(section.getStringList("events"), section.getString("min-level", ""),
+                null, null);
+        this.options = section;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public int getBreakerThreshold() {
+        return breakerThreshold;
+    }
+
+    public long getBreakerCooldown() {
+        return breakerCooldown;
+    }
+
+    public Subscription getFilter() {
+        return filter;
+    }
+
+    public Configuration getOptions() {
+        return options;
+    }
+}
@@ -0,0 +1,50 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.*;
+
+// 基于缓冲输出流的分段（log-sink: file）
+public class StreamSegmentOutput implements SegmentOutput {
+
+    private final OutputStream out;
+    private long size;
+
+    // 索引偏移从打开后的通道位置开始计算；分段只由一个写入器追加（重载时新会话换用新分段），之后由 size 累加
+    public StreamSegmentOutput(File file) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file, true);
+        this.size = stream.getChannel().position();
+        this.out = new BufferedOutputStream(stream, 64 * 1024);
+    }
+
+    @Override
+    public int write(byte[] bytes, int offset, int length) throws IOException {
+        out.write(bytes, offset, length);
+        size += length;
+        return length;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    @Override
+    public boolean fits(int length) {
+        return true;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+        out.close();
+    }
+}
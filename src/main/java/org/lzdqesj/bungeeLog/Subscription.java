@@ -0,0 +1,123 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+// WebSocket 客户端的订阅条件：订阅消息解析一次后编译成位掩码和集合，广播时只做整数和哈希比较
+//
+// events 中的 id 与 EventType 对应：playerjoin 等玩家事件订阅的是玩家事件消息，
+// 其他 id（plugin、playerchat 等）订阅的是该来源的日志行消息，"*" 表示全部
+public final class Subscription {
+
+    // 未发送订阅请求的客户端接收全部消息
+    public static final Subscription ALL = new Subscription(-1, -1, Integer.MIN_VALUE, null, null);
+
+    // 按事件类型序号的位掩码
+    private final int textMask;
+    private final int playerMask;
+    private final int minLevel;
+    // 小写的服务器名，null 表示不限
+    private final Set<String> servers;
+    // 小写的玩家名或 UUID，null 表示不限
+    private final Set<String> players;
+
+    private Subscription(int textMask, int playerMask, int minLevel, Set<String> servers, Set<String> players) {
+        this.textMask = textMask;
+        this.playerMask = playerMask;
+        this.minLevel = minLevel;
+        this.servers = servers;
+        this.players = players;
+    }
+
+    public static Subscription compile(List<String> events, String level, List<String> servers, List<String> players) {
+        int textMask = 0;
+        int playerMask = 0;
+        if (events == null || events.isEmpty()) {
+            textMask = -1;
+            playerMask = -1;
+        } else {
+            for (String id : events) {
+                if ("*".equals(id)) {
+                    textMask = -1;
+                    playerMask = -1;
+                    continue;
+                }
+                EventType type = EventType.fromId(id);
+                if (type == null) continue;
+                if (type.isPlayerEvent()) {
+                    playerMask |= 1 << type.ordinal();
+                } else {
+                    textMask |= 1 << type.ordinal();
+                }
+            }
+        }
+
+        return new Subscription(textMask, playerMask,
+                level == null || level.isEmpty() ? Integer.MIN_VALUE : levelValue(level),
+                lowerCaseSet(servers), lowerCaseSet(players));
+    }
+
+    private static Set<String> lowerCaseSet(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Set<String> set = new HashSet<>();
+        for (String value : values) {
+            set.add(value.toLowerCase(Locale.ROOT));
+        }
+        return set;
+    }
+
+    // java.util.logging 的级别数值，未知级别按 INFO 处理
+    public static int levelValue(String level) {
+        if (level == null) return 800;
+        switch (level.toUpperCase(Locale.ROOT)) {
+            case "SEVERE":
+            case "ERROR":
+                return 1000;
+            case "WARNING":
+            case "WARN":
+                return 900;
+            case "CONFIG":
+                return 700;
+            case "FINE":
+            case "DEBUG":
+                return 500;
+            case "FINER":
+                return 400;
+            case "FINEST":
+            case "TRACE":
+                return 300;
+            default:
+                return 800;
+        }
+    }
+
+    // 只看事件类型，用于构建按类型索引的订阅表
+    public boolean wants(EventType type, boolean playerMessage) {
+        return ((playerMessage ? playerMask : textMask) & (1 << type.ordinal())) != 0;
+    }
+
+    // 完整判断，type 为 null 表示不属于任何事件的控制消息，总是发送
+    public boolean matches(EventType type, boolean playerMessage, String level,
+                           String server, String playerName, UUID playerUuid) {
+        if (type == null) return true;
+        if (!wants(type, playerMessage)) return false;
+        if (minLevel != Integer.MIN_VALUE && levelValue(level) < minLevel) return false;
+        if (servers != null && (server == null || !servers.contains(server.toLowerCase(Locale.ROOT)))) return false;
+        if (players != null) {
+            boolean byName = playerName != null && players.contains(playerName.toLowerCase(Locale.ROOT));
+            boolean byUuid = playerUuid != null && players.contains(playerUuid.toString());
+            return byName || byUuid;
+        }
+        return true;
+    }
+
+    public boolean matches(LogEvent event, boolean playerMessage) {
+        return matches(event.getType(), playerMessage, event.getLevel(),
+                event.getServer(), event.getPlayerName(), event.getPlayerUuid());
+    }
+}
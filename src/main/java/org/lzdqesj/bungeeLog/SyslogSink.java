@@ -0,0 +1,187 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import net.md_5.bungee.config.Configuration;
+
+// RFC 5424 syslog 输出，发送到本地的 syslog / vector 等代理
+// UDP 每条一个数据报；TCP 使用 RFC 6587 的 octet-counting 分帧（也可配置为换行分隔），断线后下一批自动重连
+public class SyslogSink implements LogSink {
+
+    // RFC 5612 中保留给文档示例的企业号
+    private static final String SD_ID = "bungeelog@32473";
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneId.systemDefault());
+    // UDP 数据报的上限，超出部分截断
+    private static final int MAX_DATAGRAM = 65000;
+
+    private final boolean tcp;
+    private final boolean octetCounting;
+    private final InetSocketAddress address;
+    private final int facility;
+    private final String hostname;
+    private final String appName;
+
+    private DatagramSocket datagramSocket;
+    private Socket socket;
+    private OutputStream socketOut;
+
+    // 输出线程独占的格式化缓冲区
+    private final StringBuilder text = new StringBuilder(256);
+
+    public SyslogSink(BungeeLog plugin, SinkSettings settings) {
+        Configuration options = settings.getOptions();
+        this.tcp = "tcp".equalsIgnoreCase(options.getString("protocol", "udp"));
+        this.octetCounting = !"newline".equalsIgnoreCase(options.getString("framing", "octet-counting"));
+        this.address = new InetSocketAddress(options.getString("host", "127.0.0.1"), options.getInt("port", 514));
+        this.facility = Math.max(0, Math.min(23, options.getInt("facility", 16)));
+        this.hostname = printable(options.getString("hostname", localHostname()), 255);
+        this.appName = printable(options.getString("app-name", "bungeelog"), 48);
+    }
+
+    private static String localHostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "-";
+        }
+    }
+
+    @Override
+    public void write(List<EventRecord> batch) throws IOException {
+        try {
+            if (tcp) {
+                writeTcp(batch);
+            } else {
+                writeUdp(batch);
+            }
+        } catch (IOException e) {
+            // 丢掉可能已损坏的连接，重试时重新建立
+            close();
+            throw e;
+        }
+    }
+
+    private void writeUdp(List<EventRecord> batch) throws IOException {
+        if (datagramSocket == null) {
+            datagramSocket = new DatagramSocket();
+            datagramSocket.connect(address);
+        }
+        for (EventRecord record : batch) {
+            byte[] message = format(record);
+            datagramSocket.send(new DatagramPacket(message, Math.min(message.length, MAX_DATAGRAM)));
+        }
+    }
+
+    private void writeTcp(List<EventRecord> batch) throws IOException {
+        if (socket == null) {
+            socket = new Socket();
+            socket.connect(address, 3000);
+            socket.setSoTimeout(5000);
+            socketOut = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        }
+        for (EventRecord record : batch) {
+            byte[] message = format(record);
+            if (octetCounting) {
+                socketOut.write(Integer.toString(message.length).getBytes(StandardCharsets.US_ASCII));
+                socketOut.write(' ');
+                socketOut.write(message);
+            } else {
+                socketOut.write(message);
+                socketOut.write('\n');
+            }
+        }
+        socketOut.flush();
+    }
+
+    // <PRI>1 TIMESTAMP HOSTNAME APP-NAME PROCID MSGID [SD] MSG
+    byte[] format(EventRecord record) {
+        text.setLength(0);
+        text.append('<').append(facility * 8 + severity(record.getLevel())).append(">1 ");
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(record.getTimestamp()), text);
+        text.append(' ').append(hostname)
+                .append(' ').append(appName)
+                .append(" - ").append(record.getType().getId())
+                .append(" [").append(SD_ID);
+        param("level", record.getLevel());
+        param("player", record.getPlayerName());
+        param("uuid", record.getPlayerUuid() != null ? record.getPlayerUuid().toString() : null);
+        param("server", record.getServer());
+        param("address", record.getAddress());
+        text.append("] ");
+        record.appendText(text);
+
+        // 消息中的换行会破坏换行分隔的分帧
+        if (!octetCounting) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n' || text.charAt(i) == '\r') {
+                    text.setCharAt(i, ' ');
+                }
+            }
+        }
+
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void param(String name, String value) {
+        if (value == null) return;
+        text.append(' ').append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == ']') {
+                text.append('\\');
+            }
+            text.append(c);
+        }
+        text.append('"');
+    }
+
+    // 日志级别映射到 syslog 严重程度
+    static int severity(String level) {
+        int value = Subscription.levelValue(level);
+        if (value >= 1000) return 3;    // err
+        if (value >= 900) return 4;     // warning
+        if (value >= 800) return 6;     // informational
+        return 7;                       // debug
+    }
+
+    // HOSTNAME 和 APP-NAME 只允许可打印 ASCII 且不含空格
+    private static String printable(String value, int maxLength) {
+        if (value == null || value.isEmpty()) return "-";
+        StringBuilder out = new StringBuilder(Math.min(value.length(), maxLength));
+        for (int i = 0; i < value.length() && out.length() < maxLength; i++) {
+            char c = value.charAt(i);
+            out.append(c > 32 && c < 127 ? c : '_');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void close() {
+        if (datagramSocket != null) {
+            datagramSocket.close();
+            datagramSocket = null;
+        }
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 关闭失败不影响重连
+            }
+            socket = null;
+            socketOut = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.lzdqesj.bungeeLog;
+
+import net.md_5.bungee.config.Configuration;
+
+// throttle 配置：按事件类型的限流、采样和按来源 IP 去重规则，加载时编译成按 EventType 序号索引的数组
+public final class ThrottleSettings {
+
+    // 单个事件类型的规则
+    public static final class Rule {
+
+        // 每秒允许的条数，0 表示不限流
+        private final double rate;
+        private final int burst;
+        // 采样比例，1 表示全部保留
+        private final double sample;
+        // 去重窗口（毫秒），0 表示不去重
+        private final long dedupWindow;
+
+        Rule(Configuration section) {
+            this.rate = Math.max(0D, section.getDouble("rate", 0D));
+            this.burst = Math.max(1, section.getInt("burst", (int) Math.max(1D, Math.ceil(rate))));
+            this.sample = Math.max(0D, Math.min(1D, section.getDouble("sample", 1D)));
+            this.dedupWindow = Math.max(0L, section.getLong("dedup-window", 0L));
+        }
+
+        public boolean isActive() {
+            return rate > 0 || sample < 1D || dedupWindow > 0;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public double getSample() {
+            return sample;
+        }
+
+        public long getDedupWindow() {
+            return dedupWindow;
+        }
+    }
+
+    private final Rule[] rules;
+    private final long summaryInterval;
+    private final int dedupMaxSources;
+
+    // section 为 null 时不做任何限制
+    public ThrottleSettings(Configuration section) {
+        EventType[] types = EventType.values();
+        this.rules = new Rule[types.length];
+        if (section != null) {
+            for (EventType type : types) {
+                if (section.contains(type.getId())) {
+                    Rule rule = new Rule(section.getSection(type.getId()));
+                    if (rule.isActive()) {
+                        rules[type.ordinal()] = rule;
+                    }
+                }
+            }
+        }
+        this.summaryInterval = section != null ? Math.max(1000L, section.getLong("summary-interval", 10000L)) : 10000L;
+        this.dedupMaxSources = section != null ? section.getInt("dedup-max-sources", 10000) : 10000;
+    }
+
+    // 没有规则的类型返回 null
+    public Rule getRule(EventType type) {
+        return rules[type.ordinal()];
+    }
+
+    public boolean isEnabled() {
+        for (Rule rule : rules) {
+            if (rule != null) return true;
+        }
+        return false;
+    }
+
+    public long getSummaryInterval() {
+        return summaryInterval;
+    }
+
+    public int getDedupMaxSources() {
+        return dedupMaxSources;
+    }
+}
@@ -0,0 +1,133 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 哈希时间轮：大量短期超时（如 WebSocket 认证期限）共用一个周期任务，添加和取消都是 O(1)
+// 任意线程都可以添加，新任务先进入无锁队列，由 tick 线程放入对应的槽；取消只做标记，轮到该槽时丢弃
+// 精度为一个 tick，到期任务在 tick 线程上执行，应当很短
+public class TimingWheel {
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final BungeeLog plugin;
+    private final long tickNanos;
+    private final List<Timeout>[] slots;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // 下一个要处理的 tick 序号，只由 tick 线程访问
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(BungeeLog plugin, long tickMillis, int slotCount) {
+        this.plugin = plugin;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+        int length = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = new List[length];
+        for (int i = 0; i < length; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.mask = length - 1;
+    }
+
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        size.incrementAndGet();
+        incoming.add(timeout);
+        return timeout;
+    }
+
+    // 由定时线程按 tick 间隔调用；定时线程被耽搁时一次推进多个槽，追上实际时间
+    public void tick() {
+        long target = (System.nanoTime() - startNanos) / tickNanos;
+        transfer();
+        while (tick <= target) {
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transfer() {
+        Timeout timeout;
+        while ((timeout = incoming.poll()) != null) {
+            if (timeout.state.get() != PENDING) continue;
+
+            // 向上取整到所在的 tick，已经过期的放进当前槽
+            long due = Math.max(tick, (timeout.deadline - startNanos + tickNanos - 1) / tickNanos);
+            timeout.rounds = (due - tick) / slots.length;
+            slots[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    // 处理一个槽：到期的执行，已取消的移除，其余的圈数减一；用末尾元素填补空位，不移动整个列表
+    private void expire(List<Timeout> slot) {
+        int i = 0;
+        while (i < slot.size()) {
+            Timeout timeout = slot.get(i);
+            boolean remove;
+            if (timeout.state.get() != PENDING) {
+                remove = true;
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+                remove = false;
+            } else {
+                remove = true;
+                timeout.fire();
+            }
+            if (remove) {
+                Timeout last = slot.remove(slot.size() - 1);
+                if (i < slot.size()) {
+                    slot.set(i, last);
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    // 尚未到期也未取消的任务数
+    public int size() {
+        return size.get();
+    }
+
+    public final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // 还要转几圈才到期，只由 tick 线程访问
+        private long rounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        // 返回 false 表示已经执行或已取消
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        // 任务抛出的异常不能中断 tick，否则周期任务会被取消；只报告到诊断通道
+        private void fire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) return;
+            size.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                plugin.getDiagnostics().warning("定时任务执行失败: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// GCRA 形式的令牌桶：只保存下一个令牌的理论到达时间，一次 CAS 完成判断和扣减
+// 事件限流和 WebSocket 远程命令的限速共用
+public final class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong arrival;
+
+    public TokenBucket(double rate, int burst) {
+        this.interval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+        this.tolerance = interval * burst;
+        this.arrival = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire(long now) {
+        while (true) {
+            long current = arrival.get();
+            long next = (current - now > 0 ? current : now) + interval;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
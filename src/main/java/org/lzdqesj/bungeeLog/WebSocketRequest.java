@@ -0,0 +1,125 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 客户端发来的一条请求，如 {"type":"search","id":"1","from":0,"events":["playerchat"]}
+// 用 JsonReader 一次读完顶层对象，只保留字符串、数字、布尔和字符串数组字段，嵌套对象直接跳过
+// type 决定路由到哪个处理器，id 原样回显到该请求的所有回复中
+public class WebSocketRequest {
+
+    private final String type;
+    private final String id;
+    private final Map<String, Object> fields;
+
+    private WebSocketRequest(String type, String id, Map<String, Object> fields) {
+        this.type = type;
+        this.id = id;
+        this.fields = fields;
+    }
+
+    public static WebSocketRequest parse(String message) throws IOException {
+        JsonReader reader = new JsonReader(message);
+        Map<String, Object> fields = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (reader.peek()) {
+                case STRING:
+                    fields.put(name, reader.nextString());
+                    break;
+                case NUMBER:
+                    fields.put(name, number(reader.nextNumber()));
+                    break;
+                case BOOLEAN:
+                    fields.put(name, reader.nextBoolean());
+                    break;
+                case BEGIN_ARRAY:
+                    fields.put(name, strings(reader));
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    fields.remove(name);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        reader.endDocument();
+
+        Object type = fields.get("type");
+        if (!(type instanceof String) || ((String) type).isEmpty()) {
+            throw new IOException("缺少 type 字段");
+        }
+        Object id = fields.get("id");
+        return new WebSocketRequest((String) type, id != null ? String.valueOf(id) : null, fields);
+    }
+
+    private static Object number(String text) {
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            return Double.parseDouble(text);
+        }
+    }
+
+    // 数组中的字符串和数字按文本保留，其他元素跳过
+    private static List<String> strings(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            switch (reader.peek()) {
+                case STRING:
+                    values.add(reader.nextString());
+                    break;
+                case NUMBER:
+                    values.add(reader.nextNumber());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endArray();
+        return values;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getString(String key) {
+        Object value = fields.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    // 缺失或不是数字时返回默认值，小数按整数截断
+    public long getLong(String key, long def) {
+        Object value = fields.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : def;
+    }
+
+    // 单个字符串也当作只有一个元素的数组
+    @SuppressWarnings("unchecked")
+    public List<String> getStrings(String key) {
+        Object value = fields.get(key);
+        if (value instanceof List) {
+            return (List<String>) value;
+        }
+        if (value instanceof String) {
+            return Collections.singletonList((String) value);
+        }
+        return Collections.emptyList();
+    }
+}
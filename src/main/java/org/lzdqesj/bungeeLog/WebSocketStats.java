@@ -0,0 +1,53 @@
+package org.lzdqesj.bungeeLog;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// WebSocket 推送的压缩与批量计数，用于比较节省的带宽和消耗的 CPU
+public class WebSocketStats {
+
+    // 压缩
+    private final AtomicLong compressedFrames = new AtomicLong();
+    private final AtomicLong compressInputBytes = new AtomicLong();
+    private final AtomicLong compressOutputBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+
+    // 批量
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedMessages = new AtomicLong();
+
+    public void recordCompression(long inputBytes, long outputBytes, long nanos) {
+        compressedFrames.incrementAndGet();
+        compressInputBytes.addAndGet(inputBytes);
+        compressOutputBytes.addAndGet(outputBytes);
+        compressNanos.addAndGet(nanos);
+    }
+
+    public void recordBatch(int messages) {
+        batches.incrementAndGet();
+        batchedMessages.addAndGet(messages);
+    }
+
+    public long getCompressedFrames() {
+        return compressedFrames.get();
+    }
+
+    public long getCompressInputBytes() {
+        return compressInputBytes.get();
+    }
+
+    public long getCompressOutputBytes() {
+        return compressOutputBytes.get();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getBatchedMessages() {
+        return batchedMessages.get();
+    }
+}
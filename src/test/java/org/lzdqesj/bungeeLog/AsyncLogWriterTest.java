@@ -0,0 +1,121 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 溢出策略的解析，drop-oldest 保留最新的日志；空闲的写入线程休眠，有事件时被立即唤醒
+class AsyncLogWriterTest {
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+
+    @AfterEach
+    void tearDown() {
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    private static List<String> warnings(Logger logger) {
+        List<String> warnings = new CopyOnWriteArrayList<>();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                warnings.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return warnings;
+    }
+
+    @Test
+    void knownPoliciesParseQuietly() {
+        Logger logger = Logger.getLogger("overflow-policy-test-quiet");
+        List<String> warnings = warnings(logger);
+
+        assertEquals(AsyncLogWriter.OverflowPolicy.BLOCK, AsyncLogWriter.OverflowPolicy.parse("block", logger));
+        assertEquals(AsyncLogWriter.OverflowPolicy.DROP, AsyncLogWriter.OverflowPolicy.parse(" Drop ", logger));
+        assertEquals(AsyncLogWriter.OverflowPolicy.DROP_OLDEST,
+                AsyncLogWriter.OverflowPolicy.parse("drop-oldest", logger));
+        assertEquals(0, warnings.size());
+    }
+
+    @Test
+    void invalidPolicyFallsBackWithWarning() {
+        Logger logger = Logger.getLogger("overflow-policy-test");
+        List<String> warnings = warnings(logger);
+
+        assertEquals(AsyncLogWriter.OverflowPolicy.DROP_OLDEST, AsyncLogWriter.OverflowPolicy.parse("newest", logger));
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).contains("newest"));
+    }
+
+    @Test
+    void dropOldestKeepsNewestLines() throws Exception {
+        // 只有 8 个槽位，写入线程跟不上时挤掉的是最旧的，最后一条总能写入
+        plugin = TestPlugins.plugin(dir, "async-queue-size: 8", "async-overflow-policy: \"drop-oldest\"");
+        for (int i = 0; i < 200; i++) {
+            plugin.writeLog("INFO", "overflow-marker " + i);
+        }
+        AsyncLogWriter writer = plugin.getLoggingSession().getWriter();
+        long dropped = writer.getDroppedCount();
+        TestPlugins.closeLogging(plugin);
+
+        List<String> lines = TestPlugins.logLines(dir);
+        // 丢弃计数里还可能有会话启动时的其他日志
+        int written = TestPlugins.count(lines, "overflow-marker ");
+        assertTrue(written <= 200 && written + dropped >= 200, "写入 " + written + "，丢弃 " + dropped);
+        assertEquals(1, TestPlugins.count(lines, "overflow-marker 199"), "最新的一条被丢弃了");
+    }
+
+    @Test
+    void idleWriterParksUntilPublished() throws Exception {
+        plugin = TestPlugins.plugin(dir, "async-flush-interval: 60000");
+        Thread writer = writerThread();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (writer.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, writer.getState(), "空闲的写入线程没有休眠");
+
+        long before = plugin.getMetrics().getBytesWritten();
+        long start = System.nanoTime();
+        plugin.writeLog("INFO", "wake-marker");
+        while (plugin.getMetrics().getBytesWritten() == before && System.currentTimeMillis() < deadline + 2000) {
+            Thread.sleep(1);
+        }
+        long waited = (System.nanoTime() - start) / 1_000_000L;
+
+        // 休眠上限是 1 秒，远小于这个值说明是被发布的生产者唤醒的
+        assertTrue(plugin.getMetrics().getBytesWritten() > before);
+        assertTrue(waited < 500, "写入等待了 " + waited + " 毫秒");
+    }
+
+    private static Thread writerThread() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("BungeeLog-Writer".equals(thread.getName()) && thread.isAlive()) return thread;
+        }
+        throw new AssertionError("找不到写入线程");
+    }
+}
@@ -0,0 +1,83 @@
+package org.lzdqesj.bungeeLog;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// 二进制协议的参考解码器，供接入方对照实现；同一连接的所有帧必须按顺序交给同一个实例
+final class BinaryProtocolDecoder {
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    List<EventRecord> decode(ByteBuffer frame) {
+        List<EventRecord> records = new ArrayList<>();
+        try {
+            while (frame.hasRemaining()) {
+                int op = frame.get() & 0xFF;
+                switch (op) {
+                    case BinaryProtocol.OP_DEFINE: {
+                        int id = frame.getShort() & 0xFFFF;
+                        String value = getString(frame);
+                        while (dictionary.size() < id) {
+                            dictionary.add(null);
+                        }
+                        dictionary.set(id - 1, value);
+                        break;
+                    }
+                    case BinaryProtocol.OP_EVENT:
+                        records.add(readEvent(frame));
+                        break;
+                    case BinaryProtocol.OP_RESET:
+                        dictionary.clear();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的操作码: " + op);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("帧不完整", e);
+        }
+        return records;
+    }
+
+    private EventRecord readEvent(ByteBuffer frame) {
+        long sequence = frame.getLong();
+        long timestamp = frame.getLong();
+        int typeCode = frame.get() & 0xFF;
+        int flags = frame.get() & 0xFF;
+        String level = lookup(frame.getShort() & 0xFFFF);
+        String player = lookup(frame.getShort() & 0xFFFF);
+        UUID uuid = (flags & BinaryProtocol.FLAG_UUID) != 0 ? new UUID(frame.getLong(), frame.getLong()) : null;
+        String server = lookup(frame.getShort() & 0xFFFF);
+        String otherServer = lookup(frame.getShort() & 0xFFFF);
+        String address = getString(frame);
+        String text = getString(frame);
+
+        if (typeCode >= TYPES.length) {
+            throw new IllegalArgumentException("未知的事件类型: " + typeCode);
+        }
+        return new EventRecord(sequence, timestamp, TYPES[typeCode], (flags & BinaryProtocol.FLAG_PLAYER_MESSAGE) != 0,
+                level, player, uuid, address, server, otherServer, text);
+    }
+
+    private String lookup(int id) {
+        if (id == 0) return null;
+        if (id > dictionary.size() || dictionary.get(id - 1) == null) {
+            throw new IllegalArgumentException("未定义的字典编号: " + id);
+        }
+        return dictionary.get(id - 1);
+    }
+
+    private static String getString(ByteBuffer frame) {
+        int length = frame.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
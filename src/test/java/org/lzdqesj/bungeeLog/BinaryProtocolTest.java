@@ -0,0 +1,138 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+// 编码器输出的帧交给参考解码器后应得到原样的事件，批量帧和字典重置都不能错位
+class BinaryProtocolTest {
+
+    private static EventRecord record(long sequence, String player, String server, String text) {
+        UUID uuid = player == null ? null : UUID.nameUUIDFromBytes(player.getBytes());
+        return new EventRecord(sequence, 1700000000000L + sequence, player == null ? EventType.PLUGIN : EventType.CHAT,
+                player != null, "INFO", player, uuid, player == null ? null : "203.0.113.7", server, null, text);
+    }
+
+    private static ByteBuffer encode(BinaryProtocol.Encoder encoder, List<EventRecord> records) {
+        encoder.begin();
+        for (EventRecord record : records) {
+            encoder.write(record);
+        }
+        return encoder.finish();
+    }
+
+    private static void assertSameRecord(EventRecord expected, EventRecord actual) {
+        assertEquals(expected.getSequence(), actual.getSequence());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.isPlayerMessage(), actual.isPlayerMessage());
+        assertEquals(expected.getLevel(), actual.getLevel());
+        assertEquals(expected.getPlayerName(), actual.getPlayerName());
+        assertEquals(expected.getPlayerUuid(), actual.getPlayerUuid());
+        assertEquals(expected.getAddress(), actual.getAddress());
+        assertEquals(expected.getServer(), actual.getServer());
+        assertEquals(expected.getOtherServer(), actual.getOtherServer());
+        assertEquals(expected.getText(), actual.getText());
+    }
+
+    @Test
+    void batchedFrameRoundTrips() {
+        List<EventRecord> records = new ArrayList<>();
+        records.add(record(1, "alice", "lobby", "你好"));
+        records.add(record(2, "bob", "lobby", "hi"));
+        records.add(record(3, null, null, "[12:00:00] [INFO] 插件日志"));
+        records.add(record(4, "alice", "survival", ""));
+
+        List<EventRecord> decoded = new BinaryProtocolDecoder().decode(encode(new BinaryProtocol.Encoder(), records));
+
+        assertEquals(records.size(), decoded.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertSameRecord(records.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    void dictionaryCarriesAcrossFrames() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        BinaryProtocolDecoder decoder = new BinaryProtocolDecoder();
+        EventRecord first = record(1, "alice", "lobby", "one");
+        EventRecord second = record(2, "alice", "lobby", "two");
+
+        ByteBuffer firstFrame = encode(encoder, Collections.singletonList(first));
+        ByteBuffer secondFrame = encode(encoder, Collections.singletonList(second));
+
+        // 第二帧只引用第一帧定义过的字典项
+        assertEquals(BinaryProtocol.OP_EVENT, secondFrame.get(0));
+        assertSameRecord(first, decoder.decode(firstFrame).get(0));
+        assertSameRecord(second, decoder.decode(secondFrame).get(0));
+    }
+
+    @Test
+    void dictionaryResetKeepsReferencesValid() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        BinaryProtocolDecoder decoder = new BinaryProtocolDecoder();
+        int resets = 0;
+        int total = BinaryProtocol.MAX_DICTIONARY * 2;
+
+        // 每帧 16 条不同玩家的事件，跨越多次字典重置，重置可能落在批量帧的中间
+        for (int start = 0; start < total; start += 16) {
+            List<EventRecord> batch = new ArrayList<>();
+            for (int i = start; i < start + 16; i++) {
+                batch.add(record(i, "player" + i, "server" + (i % 7), "message " + i));
+            }
+            ByteBuffer frame = encode(encoder, batch);
+            resets += countResets(frame.duplicate());
+
+            List<EventRecord> decoded = decoder.decode(frame);
+            assertEquals(batch.size(), decoded.size());
+            for (int i = 0; i < batch.size(); i++) {
+                assertSameRecord(batch.get(i), decoded.get(i));
+            }
+        }
+        assertTrue(resets >= 2, "应发生字典重置: " + resets);
+    }
+
+    @Test
+    void truncatedFrameIsRejected() {
+        ByteBuffer frame = encode(new BinaryProtocol.Encoder(), Collections.singletonList(record(1, "alice", "lobby", "hi")));
+        frame.limit(frame.limit() - 1);
+
+        assertThrows(IllegalArgumentException.class, () -> new BinaryProtocolDecoder().decode(frame));
+    }
+
+    // 按记录格式走一遍帧，统计 RESET 操作码的数量
+    private static int countResets(ByteBuffer frame) {
+        int resets = 0;
+        while (frame.hasRemaining()) {
+            int op = frame.get() & 0xFF;
+            if (op == BinaryProtocol.OP_RESET) {
+                resets++;
+            } else if (op == BinaryProtocol.OP_DEFINE) {
+                frame.getShort();
+                skipString(frame);
+            } else {
+                frame.position(frame.position() + 18);
+                int flags = frame.get(frame.position() - 1) & 0xFF;
+                frame.position(frame.position() + 4 + ((flags & BinaryProtocol.FLAG_UUID) != 0 ? 16 : 0) + 4);
+                skipString(frame);
+                skipString(frame);
+            }
+        }
+        return resets;
+    }
+
+    private static void skipString(ByteBuffer frame) {
+        int length = frame.getInt();
+        if (length > 0) {
+            frame.position(frame.position() + length);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 消息长度上限按 UTF-8 字节比较，而不是按 UTF-16 字符数；没有客户端也没开历史时事件不做序列化
+class BungeeWebSocketServerTest {
+
+    private static final int LIMIT = 1024;
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+    private BungeeWebSocketServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stopServer();
+        }
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            out.append(value);
+        }
+        return out.toString();
+    }
+
+    private static void assertMatchesEncodedLength(String message) {
+        int bytes = message.getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(bytes > LIMIT, BungeeWebSocketServer.exceedsUtf8Length(message, LIMIT), bytes + " 字节");
+    }
+
+    @Test
+    void asciiLimitIsInclusive() {
+        assertFalse(BungeeWebSocketServer.exceedsUtf8Length(repeat("a", LIMIT), LIMIT));
+        assertTrue(BungeeWebSocketServer.exceedsUtf8Length(repeat("a", LIMIT + 1), LIMIT));
+    }
+
+    @Test
+    void multiByteCharactersCountAsBytes() {
+        // 400 个汉字只有 400 个字符，编码后是 1200 字节
+        String chinese = repeat("日", 400);
+        assertTrue(chinese.length() < LIMIT);
+        assertTrue(BungeeWebSocketServer.exceedsUtf8Length(chinese, LIMIT));
+
+        assertMatchesEncodedLength(repeat("é", LIMIT / 2));
+        assertMatchesEncodedLength(repeat("é", LIMIT / 2) + "a");
+        assertMatchesEncodedLength(repeat("日", 341) + "a");
+        assertMatchesEncodedLength(repeat("日", 341) + "ab");
+        // 代理对：每个表情 2 个字符、4 字节
+        assertMatchesEncodedLength(repeat("😀", LIMIT / 4));
+        assertMatchesEncodedLength(repeat("😀", LIMIT / 4) + "a");
+    }
+
+    // 服务器不启动监听，只调用写入线程使用的 publish
+    private StringBuilder publish(String... config) throws Exception {
+        plugin = TestPlugins.plugin(dir, config);
+        server = new BungeeWebSocketServer(plugin, "127.0.0.1", 0, plugin.getSettings());
+        StringBuilder json = new StringBuilder();
+        LogEvent event = new LogEvent().set(EventType.PLUGIN, "INFO", true, null, null, null, null, "publish-marker");
+        server.publish(event, json, new StringBuilder());
+        return json;
+    }
+
+    @Test
+    void noClientsAndDefaultHistorySkipSerialization() throws Exception {
+        StringBuilder json = publish();
+
+        assertEquals(0, json.length());
+        assertEquals(0, server.getSequence());
+        assertEquals(0, server.getHistorySize());
+    }
+
+    @Test
+    void enabledHistoryKeepsEventsWithoutClients() throws Exception {
+        StringBuilder json = publish("wa-history-size: 100");
+
+        assertTrue(json.toString().contains("publish-marker"));
+        assertEquals(1, server.getSequence());
+        assertEquals(1, server.getHistorySize());
+    }
+}
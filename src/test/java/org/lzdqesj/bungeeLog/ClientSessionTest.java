@@ -0,0 +1,186 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.framing.Framedata;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+// 补发和实时推送一样受底层连接窗口限制，不会把整段历史一次塞进连接的发送队列；
+// 入队的线程只放入缓冲区，编码、压缩和发送都在发送线程上；直接回复与推送共用发送锁，认证回复先于推送
+class ClientSessionTest {
+
+    private static final int HIGH_WATER = 4;
+
+    private static List<Object> payloads(int count) {
+        List<Object> payloads = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            payloads.add(StandardCharsets.UTF_8.encode("{\"seq\":" + i + "}"));
+        }
+        return payloads;
+    }
+
+    // hasBufferedData 为 true 表示底层发送队列已满
+    private static WebSocket connection(boolean buffered) {
+        WebSocket conn = Mockito.mock(WebSocket.class);
+        when(conn.isOpen()).thenReturn(true);
+        when(conn.hasBufferedData()).thenReturn(buffered);
+        return conn;
+    }
+
+    private static ClientSession session(WebSocket conn) {
+        return session(conn, Runnable::run);
+    }
+
+    private static ClientSession session(WebSocket conn, Executor sender) {
+        ClientSession session = created(conn, sender);
+        session.start();
+        return session;
+    }
+
+    // 尚未发出认证回复的会话
+    private static ClientSession created(WebSocket conn, Executor sender) {
+        return new ClientSession(conn, HIGH_WATER, 1, ClientSession.SlowClientPolicy.DROP_OLDEST,
+                1, false, new WebSocketStats(), false, sender);
+    }
+
+    // 记录 send/sendFrame 调用的连接；overlaps 统计两个线程同时在连接上发送的次数
+    private static WebSocket recording(List<String> calls, AtomicInteger overlaps) {
+        AtomicInteger inFlight = new AtomicInteger();
+        return (WebSocket) Proxy.newProxyInstance(WebSocket.class.getClassLoader(), new Class<?>[]{WebSocket.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isOpen":
+                            return true;
+                        case "hasBufferedData":
+                            return false;
+                        case "send":
+                        case "sendFrame":
+                            if (inFlight.incrementAndGet() > 1) {
+                                overlaps.incrementAndGet();
+                            }
+                            try {
+                                calls.add(method.getName());
+                                Thread.yield();
+                            } finally {
+                                inFlight.decrementAndGet();
+                            }
+                            return null;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+    }
+
+    @Test
+    void replayWaitsForSocketWindow() {
+        WebSocket conn = connection(true);
+        ClientSession session = session(conn);
+
+        session.replay(payloads(3));
+        verify(conn, never()).sendFrame(any(Framedata.class));
+        assertTrue(session.isReplaying());
+        assertEquals(3, session.getBacklog());
+
+        when(conn.hasBufferedData()).thenReturn(false);
+        session.pump();
+        verify(conn, times(3)).sendFrame(any(Framedata.class));
+        assertFalse(session.isReplaying());
+        assertEquals(0, session.getBacklog());
+    }
+
+    @Test
+    void replayDoesNotUseLiveBuffer() {
+        WebSocket conn = connection(true);
+        ClientSession session = session(conn);
+
+        session.replay(payloads(3));
+        for (Object payload : payloads(10)) {
+            session.enqueue(payload);
+        }
+
+        // 实时消息仍按高水位丢弃最旧的，补发的消息不占用也不挤掉实时缓冲区
+        assertEquals(3 + HIGH_WATER, session.getBacklog());
+        assertEquals(10 - HIGH_WATER, session.getDroppedCount());
+        verify(conn, never()).sendFrame(any(Framedata.class));
+    }
+
+    @Test
+    void enqueueLeavesSendingToSender() {
+        WebSocket conn = connection(false);
+        List<Runnable> tasks = new ArrayList<>();
+        ClientSession session = session(conn, tasks::add);
+
+        session.enqueue(payloads(1).get(0));
+        session.enqueue(payloads(1).get(0));
+        session.enqueue(payloads(1).get(0));
+
+        // 广播线程上没有发送，推送任务只提交一次
+        verify(conn, never()).sendFrame(any(Framedata.class));
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        verify(conn, times(3)).sendFrame(any(Framedata.class));
+        assertEquals(3, session.getSentCount());
+        assertEquals(0, session.getBacklog());
+    }
+
+    @Test
+    void greetingPrecedesQueuedEvents() {
+        List<String> calls = new ArrayList<>();
+        ClientSession session = created(recording(calls, new AtomicInteger()), Runnable::run);
+
+        session.enqueue(payloads(1).get(0));
+        session.enqueue(payloads(1).get(0));
+        session.pump();
+        assertTrue(calls.isEmpty(), "认证回复之前推送了事件");
+
+        session.start("auth", "started");
+        assertEquals(Arrays.asList("send", "send", "sendFrame", "sendFrame"), calls);
+    }
+
+    @Test
+    void repliesNeverOverlapPushes() throws Exception {
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger overlaps = new AtomicInteger();
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        ClientSession session = session(recording(calls, overlaps), sender);
+
+        // 查询线程和命令线程的回复与发送线程上的推送同时进行
+        Thread replies = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                session.send("{\"type\":\"search\"}");
+            }
+        });
+        replies.start();
+        for (int i = 0; i < 2000; i++) {
+            session.enqueue(payloads(1).get(0));
+        }
+        replies.join();
+        sender.shutdown();
+        assertTrue(sender.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get(), "两个线程同时在同一连接上发送");
+        assertTrue(calls.size() > 2000);
+    }
+}
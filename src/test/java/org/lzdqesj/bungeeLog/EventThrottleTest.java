@@ -0,0 +1,71 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+// 去重按玩家区分，同一出口 IP 后的不同玩家不会互相抑制
+class EventThrottleTest {
+
+    private static final String ADDRESS = "203.0.113.7";
+
+    private static EventThrottle throttle(String yaml) {
+        Configuration config = ConfigurationProvider.getProvider(YamlConfiguration.class).load(yaml);
+        return new EventThrottle(null, new ThrottleSettings(config.getSection("throttle")));
+    }
+
+    private static ProxiedPlayer player(String name) {
+        ProxiedPlayer player = Mockito.mock(ProxiedPlayer.class);
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        Mockito.when(player.getUniqueId()).thenReturn(uuid);
+        Mockito.when(player.getName()).thenReturn(name);
+        return player;
+    }
+
+    @Test
+    void chatDedupDistinguishesPlayersBehindOneAddress() {
+        EventThrottle throttle = throttle("throttle:\n  playerchat:\n    dedup-window: 5000\n");
+        ProxiedPlayer alice = player("alice");
+        ProxiedPlayer bob = player("bob");
+
+        assertTrue(throttle.admit(EventType.CHAT, alice, ADDRESS, "gg"));
+        assertTrue(throttle.admit(EventType.CHAT, bob, ADDRESS, "gg"), "同一 IP 的另一名玩家");
+        assertFalse(throttle.admit(EventType.CHAT, alice, ADDRESS, "gg"), "同一玩家的重复消息");
+        assertTrue(throttle.admit(EventType.CHAT, alice, ADDRESS, "gl"));
+        assertEquals(1, throttle.getDeduplicatedCount());
+    }
+
+    @Test
+    void pingDedupStillKeysOnAddress() {
+        EventThrottle throttle = throttle("throttle:\n  ping:\n    dedup-window: 60000\n");
+
+        assertTrue(throttle.admit(EventType.PING, null, ADDRESS, null));
+        assertFalse(throttle.admit(EventType.PING, null, ADDRESS, null));
+        assertTrue(throttle.admit(EventType.PING, null, "198.51.100.1", null));
+    }
+
+    @Test
+    void defaultConfigOnlyDeduplicatesConnections() throws Exception {
+        Configuration config;
+        try (InputStream in = EventThrottleTest.class.getResourceAsStream("/config.yml")) {
+            assertNotNull(in, "config.yml");
+            config = ConfigurationProvider.getProvider(YamlConfiguration.class).load(in);
+        }
+        ThrottleSettings settings = new ThrottleSettings(config.getSection("throttle"));
+
+        assertNull(settings.getRule(EventType.CHAT), "聊天默认不限流也不去重");
+        assertTrue(settings.getRule(EventType.PING).getDedupWindow() > 0);
+    }
+}
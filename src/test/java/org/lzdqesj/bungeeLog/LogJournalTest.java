@@ -0,0 +1,172 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 崩溃恢复：截断写了一半的尾部和校验不符的记录，只重放最后一个检查点之后的事件；重载关闭持久化时先排空再清空日志
+class LogJournalTest {
+
+    private static final int EVENTS = 20;
+
+    // 日志文件一分钟才刷新一次，测试期间不会产生覆盖这些事件的检查点
+    private static final String[] JOURNAL = {
+            "journal: true",
+            "journal-events: [\"plugin\"]",
+            "journal-commit-interval: 0",
+            "async-flush-interval: 60000",
+    };
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+
+    @AfterEach
+    void tearDown() {
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    private static File journalFile(File root) {
+        return new File(new File(new File(root, "BungeeLog"), "journal"), "events.journal");
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    // 写入事件并等写入线程处理完（已落盘到预写日志，日志文件尚未刷新）
+    private static void write(BungeeLog plugin, String marker) throws InterruptedException {
+        long before = plugin.getMetrics().getEvents(EventType.PLUGIN);
+        for (int i = 0; i < EVENTS; i++) {
+            plugin.writeLog("INFO", marker + i + ";");
+        }
+        await(() -> plugin.getMetrics().getEvents(EventType.PLUGIN) >= before + EVENTS, "写入线程没有处理完事件");
+    }
+
+    // 此刻的预写日志文件，相当于进程在这里被强制结束
+    private File crashImage(BungeeLog plugin) throws Exception {
+        File image = new File(dir, "crash.journal");
+        Files.copy(journalFile(new File(dir, "crashed")).toPath(), image.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        TestPlugins.closeLogging(plugin);
+        return image;
+    }
+
+    // 在新的数据目录中放入预写日志后启动，恢复的事件写入新目录的日志文件
+    private BungeeLog recover(File image) throws Exception {
+        File root = new File(dir, "recovered");
+        File target = journalFile(root);
+        target.getParentFile().mkdirs();
+        Files.copy(image.toPath(), target.toPath());
+        plugin = TestPlugins.plugin(root, JOURNAL);
+        return plugin;
+    }
+
+    private List<String> recoveredLines() throws Exception {
+        TestPlugins.closeLogging(plugin);
+        return TestPlugins.logLines(new File(dir, "recovered"));
+    }
+
+    private static void assertEachOnce(List<String> lines, String marker, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertEquals(1, TestPlugins.count(lines, marker + i + ";"), marker + i);
+        }
+    }
+
+    @Test
+    void recoveryReplaysOnlyEventsAfterCheckpoint() throws Exception {
+        BungeeLog crashed = TestPlugins.plugin(new File(dir, "crashed"), JOURNAL);
+        write(crashed, "before-");
+        long written = crashed.getJournal().getLastSequence();
+        // 重载关闭旧会话：旧写入器排空并刷新，提交线程随后写入覆盖这些事件的检查点
+        crashed.reloadLogging();
+        await(() -> crashed.getJournal().getCheckpoint() >= written, "检查点没有推进");
+        write(crashed, "after-");
+        File image = crashImage(crashed);
+
+        recover(image);
+        List<String> lines = recoveredLines();
+        assertEquals(0, TestPlugins.count(lines, "before-"), "检查点之前的事件被重放");
+        assertEquals(EVENTS, TestPlugins.count(lines, "after-"));
+        assertEachOnce(lines, "after-", 0, EVENTS);
+    }
+
+    @Test
+    void tornTailIsTruncated() throws Exception {
+        BungeeLog crashed = TestPlugins.plugin(new File(dir, "crashed"), JOURNAL);
+        write(crashed, "event-");
+        File image = crashImage(crashed);
+        long valid = image.length();
+        // 写了一半的记录：声明 100 字节内容，实际只写入 2 字节
+        try (RandomAccessFile file = new RandomAccessFile(image, "rw")) {
+            file.seek(valid);
+            file.writeInt(100);
+            file.writeInt(0);
+            file.write(new byte[2]);
+        }
+
+        BungeeLog recovered = recover(image);
+        assertEquals(10, recovered.getJournal().getTornBytes());
+        assertEquals(EVENTS, TestPlugins.count(recoveredLines(), "event-"));
+    }
+
+    @Test
+    void checksumMismatchStopsRecovery() throws Exception {
+        BungeeLog crashed = TestPlugins.plugin(new File(dir, "crashed"), JOURNAL);
+        write(crashed, "event-");
+        File image = crashImage(crashed);
+        // 最后一条记录是最后写入的事件，改动它内容的最后一个字节
+        try (RandomAccessFile file = new RandomAccessFile(image, "rw")) {
+            file.seek(image.length() - 1);
+            int last = file.read();
+            file.seek(image.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        BungeeLog recovered = recover(image);
+        assertTrue(recovered.getJournal().getTornBytes() > 0);
+        List<String> lines = recoveredLines();
+        assertEquals(EVENTS - 1, TestPlugins.count(lines, "event-"));
+        assertEachOnce(lines, "event-", 0, EVENTS - 1);
+        assertEquals(0, TestPlugins.count(lines, "event-" + (EVENTS - 1) + ";"));
+    }
+
+    @Test
+    void disablingOnReloadDrainsBeforeTruncating() throws Exception {
+        File root = new File(dir, "reloaded");
+        plugin = TestPlugins.plugin(root, JOURNAL);
+        write(plugin, "event-");
+
+        TestPlugins.writeConfig(root, "journal: false");
+        plugin.reloadLogging();
+        // 旧会话的事件已写入日志文件，预写日志只剩文件头
+        assertEquals(4, journalFile(root).length());
+
+        TestPlugins.writeConfig(root, JOURNAL);
+        plugin.reloadLogging();
+        assertEquals(0, plugin.getJournal().getRecoveredCount());
+
+        TestPlugins.closeLogging(plugin);
+        List<String> lines = TestPlugins.logLines(root);
+        assertEquals(EVENTS, TestPlugins.count(lines, "event-"));
+        assertEachOnce(lines, "event-", 0, EVENTS);
+    }
+}
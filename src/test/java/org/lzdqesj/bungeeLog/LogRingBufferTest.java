@@ -0,0 +1,127 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+// 缓冲区满时生产者挤掉最旧的事件：消费者按顺序拿到剩下的事件，不会读到被重新填充到一半的槽位
+class LogRingBufferTest {
+
+    private static void offer(LogRingBuffer ring, String text) {
+        long sequence = ring.tryClaim();
+        ring.get(sequence).set(EventType.PLUGIN, text, true, null, null, null, null, text);
+        ring.publish(sequence);
+    }
+
+    private static List<String> drainAll(LogRingBuffer ring) throws Exception {
+        List<String> texts = new ArrayList<>();
+        ring.drain(event -> texts.add(event.getText()), Integer.MAX_VALUE);
+        return texts;
+    }
+
+    @Test
+    void dropOldestFreesTheOldestSlot() throws Exception {
+        LogRingBuffer ring = new LogRingBuffer(4, true);
+        for (int i = 0; i < 4; i++) {
+            offer(ring, "e" + i);
+        }
+        assertTrue(ring.tryClaim() < 0);
+
+        assertTrue(ring.dropOldest());
+        assertTrue(ring.dropOldest());
+        offer(ring, "e4");
+        offer(ring, "e5");
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 2; i < 6; i++) {
+            expected.add("e" + i);
+        }
+        assertEquals(expected, drainAll(ring));
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void unpublishedOrJournaledSlotIsKept() throws Exception {
+        LogRingBuffer ring = new LogRingBuffer(2, true);
+        long first = ring.tryClaim();
+        // 还在填充的槽位不能被挤掉
+        assertFalse(ring.dropOldest());
+        ring.get(first).set(EventType.PLUGIN, "INFO", true, null, null, null, null, "journaled")
+                .setJournalSequence(1);
+        ring.publish(first);
+        // 持久化事件必须写入日志文件
+        assertFalse(ring.dropOldest());
+        assertEquals(1, ring.size());
+    }
+
+    @Test
+    void onlyLossyBufferDrops() {
+        LogRingBuffer ring = new LogRingBuffer(2);
+        offer(ring, "a");
+        offer(ring, "b");
+        assertFalse(ring.dropOldest());
+        assertEquals(2, ring.size());
+    }
+
+    @Test
+    void concurrentDropsNeverTearEvents() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        LogRingBuffer ring = new LogRingBuffer(16, true);
+        AtomicLong dropped = new AtomicLong();
+        AtomicLong received = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+        long[] last = new long[producers];
+        java.util.Arrays.fill(last, -1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence;
+                    while ((sequence = ring.tryClaim()) < 0) {
+                        if (ring.dropOldest()) dropped.incrementAndGet();
+                    }
+                    // 级别和正文写同一个值，消费者读到两者不一致说明拿到了被重新填充的槽位
+                    String value = producer + ":" + i;
+                    ring.get(sequence).set(EventType.PLUGIN, value, true, null, null, null, null, value);
+                    ring.publish(sequence);
+                }
+            }));
+        }
+        for (Thread thread : threads) thread.start();
+
+        LogRingBuffer.Handler handler = event -> {
+            received.incrementAndGet();
+            if (!event.getLevel().equals(event.getText())) {
+                failure.compareAndSet(null, "字段不一致: " + event.getLevel() + " / " + event.getText());
+                return;
+            }
+            String[] parts = event.getText().split(":");
+            int producer = Integer.parseInt(parts[0]);
+            long index = Long.parseLong(parts[1]);
+            if (index <= last[producer]) {
+                failure.compareAndSet(null, "生产者 " + producer + " 的事件乱序: " + index + " <= " + last[producer]);
+            }
+            last[producer] = index;
+        };
+        boolean alive = true;
+        while (alive) {
+            alive = false;
+            for (Thread thread : threads) alive |= thread.isAlive();
+            ring.drain(handler, 64);
+        }
+        ring.drain(handler, Integer.MAX_VALUE);
+
+        assertEquals(null, failure.get());
+        assertEquals((long) producers * perProducer, received.get() + dropped.get());
+    }
+}
@@ -0,0 +1,69 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 重载期间新旧会话交替写入后，索引中的每个偏移仍然指向一整行
+class LogSearchReloadTest {
+
+    private static final int RELOADS = 5;
+    private static final int LINES = 200;
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+
+    @AfterEach
+    void tearDown() {
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    @Test
+    void indexedOffsetsSurviveReloads() throws Exception {
+        plugin = TestPlugins.plugin(dir, "log-index: true", "enable-console-mirror: false");
+        for (int reload = 0; reload <= RELOADS; reload++) {
+            for (int i = 0; i < LINES; i++) {
+                // 每个会话的行长不同，错位的偏移读出来不会恰好是另一整行
+                plugin.writeLog("INFO", "marker " + reload + "-" + i + " " + padding(reload));
+            }
+            if (reload < RELOADS) {
+                plugin.reloadLogging();
+            }
+        }
+        TestPlugins.closeLogging(plugin);
+
+        List<String> lines = TestPlugins.logLines(dir);
+        List<String> hits = new ArrayList<>();
+        LogSearch search = new LogSearch(new File(new File(dir, "BungeeLog"), "logs"), StandardCharsets.UTF_8);
+        search.search(new LogSearch.Query(0L, Long.MAX_VALUE, null, 0, Integer.MAX_VALUE), hit -> {
+            hits.add(hit.getLine());
+            return true;
+        });
+
+        assertEquals(lines.size(), hits.size(), "索引行数");
+        Collections.sort(lines);
+        Collections.sort(hits);
+        assertEquals(lines, hits, "索引指向的行与日志文件不一致");
+        assertEquals((RELOADS + 1) * LINES, TestPlugins.count(hits, "marker "));
+    }
+
+    private static String padding(int length) {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i <= length * 7; i++) {
+            padding.append('x');
+        }
+        return padding.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+// 预编译模板和缓存的时间戳与最初每行 SimpleDateFormat 加三次 replace 的写法输出一致
+class LogTemplateTest {
+
+    private static final String[] FORMATS = {
+            "[%time%] [%level%] %message%",
+            "%message% <- %level% @ %time%",
+            "%time%%level%%message%",
+            "%level% %level% %message%",
+            "100% [%time%] %unknown% %message% %",
+            "no placeholders",
+            "",
+    };
+
+    private static final String[] MESSAGES = {
+            "Steve issued server command: /server lobby-1",
+            "Steve said \"hi\"\n\tpath C:\\Users\\steve 中文消息",
+            "literal %time% and %level% in the message",
+            "",
+    };
+
+    // 基线 writeLog 的写法
+    private static String legacy(String format, long millis, String level, String message) {
+        String time = new SimpleDateFormat("HH:mm:ss").format(new Date(millis));
+        return format
+                .replace("%time%", time)
+                .replace("%level%", level)
+                .replace("%message%", message);
+    }
+
+    @Test
+    void templateMatchesLegacyReplace() {
+        LogClock clock = new LogClock("HH:mm:ss");
+        long millis = System.currentTimeMillis();
+        StringBuilder line = new StringBuilder();
+        for (String format : FORMATS) {
+            LogTemplate template = LogTemplate.compile(format);
+            for (String message : MESSAGES) {
+                LogEvent event = new LogEvent().set(EventType.PLUGIN, "WARNING", true, null, null, null, null,
+                        message);
+                line.setLength(0);
+                template.render(line, clock.format(millis), event);
+                assertEquals(legacy(format, millis, "WARNING", message), line.toString(), format);
+            }
+        }
+    }
+
+    @Test
+    void clockMatchesSimpleDateFormatAcrossSeconds() {
+        LogClock clock = new LogClock("HH:mm:ss");
+        SimpleDateFormat legacy = new SimpleDateFormat("HH:mm:ss");
+        long start = System.currentTimeMillis() / 1000L * 1000L;
+        for (long millis = start - 1500; millis < start + 3500; millis += 250) {
+            assertEquals(legacy.format(new Date(millis)), clock.format(millis), String.valueOf(millis));
+        }
+    }
+}
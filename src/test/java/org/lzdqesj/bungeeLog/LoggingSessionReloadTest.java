@@ -0,0 +1,84 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 多次重载后根日志器上只保留一个镜像处理器，每条记录只写入一次
+class LoggingSessionReloadTest {
+
+    private static final int RELOADS = 10;
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+
+    @AfterEach
+    void tearDown() {
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    @Test
+    void reloadKeepsSingleHandler() throws Exception {
+        plugin = TestPlugins.plugin(dir, "enable-console-mirror: true");
+        for (int i = 0; i < RELOADS; i++) {
+            plugin.reloadLogging();
+        }
+
+        assertEquals(1, logHandlers(), "重载 " + RELOADS + " 次后的镜像处理器数量");
+        LoggingSession session = plugin.getLoggingSession();
+        assertEquals(session, currentHandler().getSession());
+    }
+
+    @Test
+    void reloadDoesNotAmplifyWrites() throws Exception {
+        plugin = TestPlugins.plugin(dir, "enable-console-mirror: true");
+        for (int i = 0; i < RELOADS; i++) {
+            plugin.reloadLogging();
+        }
+
+        Logger.getLogger("reload-test").info("mirrored-marker");
+        plugin.writeLog("INFO", "direct-marker");
+        TestPlugins.closeLogging(plugin);
+
+        List<String> lines = TestPlugins.logLines(dir);
+        assertEquals(1, TestPlugins.count(lines, "mirrored-marker"), "镜像记录写入次数");
+        assertEquals(1, TestPlugins.count(lines, "direct-marker"), "插件日志写入次数");
+        // 每次初始化各写一行，不因处理器累积而重复
+        assertEquals(RELOADS + 1, TestPlugins.count(lines, "日志系统初始化完成"));
+    }
+
+    @Test
+    void closedSessionRemovesHandler() throws Exception {
+        plugin = TestPlugins.plugin(dir, "enable-console-mirror: true");
+        plugin.reloadLogging();
+        TestPlugins.closeLogging(plugin);
+
+        assertEquals(0, logHandlers());
+    }
+
+    private static int logHandlers() {
+        int count = 0;
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            if (handler instanceof LogHandler) count++;
+        }
+        return count;
+    }
+
+    private static LogHandler currentHandler() {
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            if (handler instanceof LogHandler) return (LogHandler) handler;
+        }
+        return null;
+    }
+}
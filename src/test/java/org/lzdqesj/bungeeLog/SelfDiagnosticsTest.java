@@ -0,0 +1,146 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 出故障的外部输出或镜像过程中再次产生的日志不能回到日志文件形成回环；严重错误不会被普通诊断消息挤掉
+class SelfDiagnosticsTest {
+
+    private static final int EVENTS = 50;
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+    private Handler capture;
+
+    @AfterEach
+    void tearDown() {
+        if (capture != null) {
+            Logger.getLogger(SelfDiagnostics.LOGGER_NAME).removeHandler(capture);
+        }
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    @Test
+    void failingSinkDoesNotRecurse() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        // 模拟出错时自己打日志的输出库：日志在输出线程上产生，会被镜像处理器看到
+        SinkRegistry.register("failing-test", (owner, settings) -> new LogSink() {
+            @Override
+            public void write(List<EventRecord> batch) throws IOException {
+                writes.incrementAndGet();
+                Logger.getLogger("failing-sink").warning("sink-failure");
+                throw new IOException("sink-failure");
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        plugin = TestPlugins.plugin(dir, "enable-console-mirror: true",
+                "sinks:",
+                "  broken:",
+                "    type: \"failing-test\"",
+                "    max-retries: 0",
+                "    batch-size: 1",
+                "    breaker-threshold: 1",
+                "    breaker-cooldown: 0");
+
+        for (int i = 0; i < EVENTS; i++) {
+            plugin.writeLog("INFO", "event-marker " + i);
+        }
+        // 会话关闭后镜像处理器不再转发，先等输出在会话仍有效时处理完这些事件
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writes.get() < EVENTS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        SelfDiagnostics diagnostics = plugin.getDiagnostics();
+        TestPlugins.closeLogging(plugin);
+
+        List<String> lines = TestPlugins.logLines(dir);
+        assertEquals(EVENTS, TestPlugins.count(lines, "event-marker "));
+        assertEquals(0, TestPlugins.count(lines, "sink-failure"), "输出的错误日志写回了日志文件");
+        // 每批一条，每条写入的日志最多投递一次，错误日志没有变成新的事件再交给输出
+        assertTrue(writes.get() > 0 && writes.get() <= lines.size(), "输出调用次数: " + writes.get());
+        assertTrue(diagnostics.getLoopsBlocked() >= EVENTS, "被阻断的回环: " + diagnostics.getLoopsBlocked());
+    }
+
+    @Test
+    void reentrantMirrorRecordIsBlocked() throws Exception {
+        plugin = TestPlugins.plugin(dir, "enable-console-mirror: true");
+        LogHandler handler = currentHandler();
+        // 消息渲染过程中又打了一条日志（例如参数的 toString 出错后报告），同一线程重入镜像处理器
+        LogRecord record = new LogRecord(Level.WARNING, "outer-marker") {
+            @Override
+            public String getMessage() {
+                handler.publish(new LogRecord(Level.WARNING, "nested-marker"));
+                return super.getMessage();
+            }
+        };
+        record.setLoggerName("reentrant-test");
+
+        handler.publish(record);
+        SelfDiagnostics diagnostics = plugin.getDiagnostics();
+        TestPlugins.closeLogging(plugin);
+
+        List<String> lines = TestPlugins.logLines(dir);
+        assertEquals(1, TestPlugins.count(lines, "outer-marker"));
+        assertEquals(0, TestPlugins.count(lines, "nested-marker"));
+        assertEquals(1, diagnostics.getLoopsBlocked());
+    }
+
+    @Test
+    void severeHasItsOwnBudget() throws Exception {
+        plugin = TestPlugins.plugin(dir);
+        List<String> published = new CopyOnWriteArrayList<>();
+        capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                published.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger.getLogger(SelfDiagnostics.LOGGER_NAME).addHandler(capture);
+
+        SelfDiagnostics diagnostics = plugin.getDiagnostics();
+        for (int i = 0; i < EVENTS; i++) {
+            diagnostics.warning("flood " + i);
+        }
+        diagnostics.severe("write-failed");
+
+        assertTrue(TestPlugins.count(published, "flood ") < EVENTS, "普通消息应被限流");
+        assertTrue(diagnostics.getSuppressedCount() > 0);
+        assertEquals(1, TestPlugins.count(published, "write-failed"), "严重错误被普通消息的限流挤掉");
+    }
+
+    private static LogHandler currentHandler() {
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            if (handler instanceof LogHandler) return (LogHandler) handler;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+package org.lzdqesj.bungeeLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.plugin.PluginDescription;
+import org.mockito.Mockito;
+
+// 测试的公共夹具：不需要代理的插件实例，以及读取写入的日志行
+final class TestPlugins {
+
+    private TestPlugins() {
+    }
+
+    // 在 dir 下创建插件数据目录并写入配置后初始化日志系统；默认不压缩、不开 WebAPI
+    static BungeeLog plugin(File dir, String... config) throws IOException {
+        writeConfig(dir, config);
+
+        Logger proxyLogger = Logger.getLogger("BungeeCord");
+        proxyLogger.setLevel(Level.WARNING);
+        ProxyServer proxy = Mockito.mock(ProxyServer.class);
+        Mockito.when(proxy.getLogger()).thenReturn(proxyLogger);
+
+        PluginDescription description = new PluginDescription();
+        description.setName("BungeeLog");
+        description.setFile(new File(dir, "BungeeLog.jar"));
+
+        BungeeLog plugin = new BungeeLog(proxy, description);
+        plugin.reloadLogging();
+        return plugin;
+    }
+
+    // 覆盖插件数据目录下的配置，之后调用 reloadLogging 生效
+    static void writeConfig(File dir, String... config) throws IOException {
+        File dataFolder = new File(dir, "BungeeLog");
+        dataFolder.mkdirs();
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(dataFolder, "config.yml")), StandardCharsets.UTF_8))) {
+            writer.println("compress-logs: false");
+            writer.println("webapi: false");
+            for (String line : config) {
+                writer.println(line);
+            }
+        }
+    }
+
+    // 关闭当前会话，排空写入器，之后日志文件内容完整；与 onDisable 相同，最后关闭预写日志
+    static void closeLogging(BungeeLog plugin) {
+        LoggingSession session = plugin.getLoggingSession();
+        if (session != null) {
+            session.close();
+        }
+        LogJournal journal = plugin.getJournal();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // 按文件名顺序读取 logs 目录下所有未压缩分段的日志行
+    static List<String> logLines(File dir) throws IOException {
+        File[] files = new File(new File(dir, "BungeeLog"), "logs")
+                .listFiles((parent, name) -> name.endsWith(".log"));
+        List<String> lines = new ArrayList<>();
+        if (files == null) return lines;
+        java.util.Arrays.sort(files);
+        for (File file : files) {
+            lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+
+    static int count(List<String> lines, String marker) {
+        int count = 0;
+        for (String line : lines) {
+            if (line.contains(marker)) count++;
+        }
+        return count;
+    }
+}
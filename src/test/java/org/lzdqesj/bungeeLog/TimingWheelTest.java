@@ -0,0 +1,47 @@
+package org.lzdqesj.bungeeLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// 到期任务抛出的异常报告到诊断通道，不影响同一次 tick 中的其他任务
+class TimingWheelTest {
+
+    @TempDir
+    File dir;
+
+    private BungeeLog plugin;
+
+    @AfterEach
+    void tearDown() {
+        if (plugin != null) {
+            TestPlugins.closeLogging(plugin);
+        }
+    }
+
+    @Test
+    void failingTaskIsReported() throws Exception {
+        plugin = TestPlugins.plugin(dir);
+        TimingWheel wheel = new TimingWheel(plugin, 1, 8);
+        AtomicInteger fired = new AtomicInteger();
+        long warnings = plugin.getDiagnostics().getWarningCount();
+
+        wheel.schedule(() -> {
+            throw new IllegalStateException("deadline-failure");
+        }, 0);
+        wheel.schedule(fired::incrementAndGet, 0);
+        Thread.sleep(5);
+        wheel.tick();
+
+        assertEquals(1, fired.get());
+        assertEquals(0, wheel.size());
+        assertEquals(warnings + 1, plugin.getDiagnostics().getWarningCount());
+        assertTrue(plugin.getDiagnostics().getLastProblem().contains("deadline-failure"));
+    }
+}